@@ -0,0 +1,6 @@
+@ECHO OFF
+:: Batch script to build the project and run the JMH benchmarks, passing any arguments to JMH
+cd ..
+call mvn -Pbench verify -Djmh.args="%*"
+cd scripts
+PAUSE
\ No newline at end of file
@@ -0,0 +1,6 @@
+#!/bin/bash
+#Bash script to build the project and run the JMH benchmarks, passing any arguments to JMH
+cd ..
+mvn -Pbench verify -Djmh.args="$*"
+cd scripts
+$SHELL
\ No newline at end of file
@@ -0,0 +1,77 @@
+package jmh.java;
+
+import java.io.IOException;
+
+import main.java.Graph;
+
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * @author Aaron Zachariah
+ * Shared state of the benchmarks which run on a loaded graph. The synthetic graph is made once
+ * per trial from the size, degree and distribution parameters, which can be changed from the
+ * command line, for example -p nodes=1000000 -p distribution=powerlaw
+ */
+@State(Scope.Benchmark)
+public abstract class GraphState {
+
+    /**
+     * Number of nodes of the synthetic graph
+     */
+    @Param({"100000"})
+    public int nodes;
+
+    /**
+     * Average degree of the synthetic graph
+     */
+    @Param({"8"})
+    public int degree;
+
+    /**
+     * Degree distribution of the synthetic graph, "uniform" or "powerlaw"
+     */
+    @Param({"uniform", "powerlaw"})
+    public String distribution;
+
+    /**
+     * Graph the benchmark runs on
+     */
+    protected Graph graph;
+
+    /**
+     * Seed of the synthetic graph and of the simulation
+     */
+    protected static final long SEED = 42;
+
+    /**
+     * Makes the synthetic graph
+     * @throws IOException exception thrown if the graph cannot be written or read
+     */
+    @Setup
+    public void loadGraph() throws IOException {
+        graph = SyntheticGraph.load(nodes, degree, distribution, SEED);
+    }
+
+    /**
+     * Stops any worker threads started by the benchmark
+     */
+    @TearDown
+    public void shutdown(){
+        graph.shutdown();
+    }
+
+    /**
+     * Starts a new simulation on the graph with about a given share of the nodes infected
+     * @param fraction share of the nodes to infect, between 0 and 1
+     */
+    protected void infectFraction(double fraction){
+        graph.reset();
+        graph.n_infected = Math.max(1, (int) (graph.size() * fraction));
+        graph.infectRandom();
+    }
+
+}
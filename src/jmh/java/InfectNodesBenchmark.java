@@ -0,0 +1,80 @@
+package jmh.java;
+
+import java.util.concurrent.TimeUnit;
+
+import main.java.SimThread;
+import main.java.TickExecutor;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * @author Aaron Zachariah
+ * Benchmark of SimThread.infectNodes on its own, over the whole frontier on a single worker.
+ * infectNodes records the nodes it infects in the next state array, so the next state is copied
+ * back from the current state before every call and each call infects the same neighbors again,
+ * without setting up a new simulation
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class InfectNodesBenchmark extends GraphState {
+
+    /**
+     * Share of the nodes in the frontier
+     */
+    @Param({"0.001", "0.01", "0.1"})
+    public double infected;
+
+    /**
+     * Worker running infectNodes, and the pool it belongs to
+     */
+    private SimThread worker;
+    private TickExecutor executor;
+
+    /**
+     * Seeds the frontier and makes a worker covering all of it
+     */
+    @Setup(Level.Trial)
+    public void createWorker(){
+        infectFraction(infected);
+        executor = new TickExecutor(graph, 1);
+        worker = new SimThread(graph, executor);
+        worker.setRange(0, graph.frontier_size);
+    }
+
+    /**
+     * Undoes the infections of the last call, so none of the neighbors is already infected
+     */
+    @Setup(Level.Invocation)
+    public void resetNextState(){
+        System.arraycopy(graph.state, 0, graph.next_state, 0, graph.state.length);
+    }
+
+    /**
+     * Stops the pool made for the worker
+     */
+    @TearDown
+    public void stopExecutor(){
+        executor.shutdown();
+    }
+
+    @Benchmark
+    public int infectNodes(){
+        worker.updatedNodes.clear();
+        worker.infectNodes();
+        return worker.updatedNodes.size();
+    }
+
+}
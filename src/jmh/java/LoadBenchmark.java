@@ -0,0 +1,100 @@
+package jmh.java;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import main.java.Graph;
+import main.java.GraphSnapshot;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * @author Aaron Zachariah
+ * Benchmark of Graph.buildGraph, reading the same synthetic graph from its text adjacency
+ * list and from its binary snapshot
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class LoadBenchmark {
+
+    /**
+     * Number of nodes of the synthetic graph
+     */
+    @Param({"100000"})
+    public int nodes;
+
+    /**
+     * Average degree of the synthetic graph
+     */
+    @Param({"8"})
+    public int degree;
+
+    /**
+     * Degree distribution of the synthetic graph, "uniform" or "powerlaw"
+     */
+    @Param({"uniform", "powerlaw"})
+    public String distribution;
+
+    /**
+     * Paths of the text file and of its snapshot
+     */
+    private String text_path;
+    private String snapshot_path;
+
+    /**
+     * Writes the synthetic graph as text and as a snapshot
+     * @throws IOException exception thrown if a file cannot be written
+     */
+    @Setup
+    public void writeFiles() throws IOException {
+
+        text_path = SyntheticGraph.write(nodes, degree, distribution, GraphState.SEED);
+        Graph graph = new Graph();
+        graph.write_snapshot = false;
+        graph.buildGraph(text_path);
+        snapshot_path = text_path + ".bin";
+        GraphSnapshot.write(graph, snapshot_path);
+
+    }
+
+    /**
+     * Deletes the files written by the setup
+     */
+    @TearDown
+    public void deleteFiles(){
+        new File(text_path).delete();
+        new File(snapshot_path).delete();
+    }
+
+    @Benchmark
+    public Graph buildFromText() throws IOException {
+        Graph graph = new Graph();
+        graph.write_snapshot = false;
+        graph.buildGraph(text_path);
+        return graph;
+    }
+
+    @Benchmark
+    public Graph buildFromSnapshot() throws IOException {
+        Graph graph = new Graph();
+        graph.buildGraph(snapshot_path);
+        return graph;
+    }
+
+}
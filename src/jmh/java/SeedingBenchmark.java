@@ -0,0 +1,76 @@
+package jmh.java;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * @author Aaron Zachariah
+ * Benchmark of the three seeding strategies and of Graph.BFS. Every invocation starts from a
+ * graph with every node susceptible
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class SeedingBenchmark extends GraphState {
+
+    /**
+     * Number of nodes infected by the random and bfs strategies and visited by BFS
+     */
+    @Param({"1000"})
+    public int count;
+
+    /**
+     * Copies the count into the seeding parameters
+     */
+    @Setup(Level.Trial)
+    public void setParameters(){
+        graph.n_infected = count;
+        graph.k_infected = count;
+        graph.s_infected = degree * 2;
+    }
+
+    /**
+     * Puts every node back in the susceptible state
+     */
+    @Setup(Level.Invocation)
+    public void reset(){
+        graph.reset();
+    }
+
+    @Benchmark
+    public int infectRandom(){
+        graph.infectRandom();
+        return graph.infected;
+    }
+
+    @Benchmark
+    public int infectDegree(){
+        graph.infectDegree();
+        return graph.infected;
+    }
+
+    @Benchmark
+    public int infectBFS(){
+        graph.infectBFS();
+        return graph.infected;
+    }
+
+    @Benchmark
+    public int bfs(){
+        graph.BFS(graph.nodes.get(0), count);
+        return graph.infected;
+    }
+
+}
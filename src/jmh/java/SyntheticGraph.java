@@ -0,0 +1,148 @@
+package jmh.java;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+
+import main.java.Graph;
+
+/**
+ * @author Aaron Zachariah
+ * Generator of random undirected graphs for the benchmarks, written as text adjacency lists so
+ * they can be loaded with Graph.buildGraph like any other input.
+ *
+ * Two degree distributions are supported:
+ *  uniform  - both ends of every edge are picked uniformly at random
+ *  powerlaw - Chung-Lu graph whose expected degrees follow a power law with exponent 2.5,
+ *             so a few hub nodes have a very large degree
+ * Self loops are dropped, so the average degree is slightly below the one asked for.
+ */
+public class SyntheticGraph {
+
+    /**
+     * Exponent of the power law degree distribution
+     */
+    private static final double GAMMA = 2.5;
+
+    /**
+     * Writes a random graph to a temporary file, which is deleted when the JVM exits
+     * @param nodes number of nodes
+     * @param degree average degree
+     * @param distribution "uniform" or "powerlaw"
+     * @param seed seed of the generator
+     * @return path of the file
+     * @throws IOException exception thrown on IO error when writing the file
+     */
+    public static String write(int nodes, int degree, String distribution, long seed) throws IOException {
+
+        Random rand = new Random(seed);
+        int edges = (int) ((long) nodes * degree / 2);
+        int[] src = new int[edges];
+        int[] dst = new int[edges];
+
+        if(distribution.equals("uniform")){
+            for(int e = 0; e < edges; e++){
+                src[e] = rand.nextInt(nodes);
+                dst[e] = rand.nextInt(nodes);
+            }
+        } else if(distribution.equals("powerlaw")){
+            // node i is picked with a probability proportional to (i + 1)^(-1 / (GAMMA - 1))
+            double[] cumulative = new double[nodes];
+            double total = 0.0;
+            for(int i = 0; i < nodes; i++){
+                total += Math.pow(i + 1, -1.0 / (GAMMA - 1.0));
+                cumulative[i] = total;
+            }
+            for(int e = 0; e < edges; e++){
+                src[e] = pick(cumulative, rand.nextDouble() * total);
+                dst[e] = pick(cumulative, rand.nextDouble() * total);
+            }
+        } else {
+            throw new IllegalArgumentException("Unknown degree distribution: " + distribution);
+        }
+
+        // group both directions of every edge by node
+        int[] offsets = new int[nodes + 1];
+        for(int e = 0; e < edges; e++){
+            if(src[e] != dst[e]){
+                offsets[src[e] + 1]++;
+                offsets[dst[e] + 1]++;
+            }
+        }
+        for(int i = 0; i < nodes; i++){
+            offsets[i + 1] += offsets[i];
+        }
+        int[] next = Arrays.copyOf(offsets, nodes);
+        int[] neighbors = new int[offsets[nodes]];
+        for(int e = 0; e < edges; e++){
+            if(src[e] != dst[e]){
+                neighbors[next[src[e]]++] = dst[e];
+                neighbors[next[dst[e]]++] = src[e];
+            }
+        }
+
+        File file = File.createTempFile("synthetic-" + distribution + "-", ".txt");
+        file.deleteOnExit();
+        BufferedWriter out = new BufferedWriter(new FileWriter(file), 1 << 16);
+        try{
+            for(int u = 0; u < nodes; u++){
+                if(offsets[u] == offsets[u + 1]){
+                    continue;
+                }
+                out.write("n");
+                out.write(Integer.toString(u));
+                for(int j = offsets[u]; j < offsets[u + 1]; j++){
+                    out.write(" n");
+                    out.write(Integer.toString(neighbors[j]));
+                }
+                out.newLine();
+            }
+        } finally{
+            out.close();
+        }
+
+        return file.getPath();
+
+    }
+
+    /**
+     * Writes a random graph and loads it, without leaving a snapshot behind
+     * @param nodes number of nodes
+     * @param degree average degree
+     * @param distribution "uniform" or "powerlaw"
+     * @param seed seed of the generator
+     * @return the loaded graph
+     * @throws IOException exception thrown on IO error when writing or reading the file
+     */
+    public static Graph load(int nodes, int degree, String distribution, long seed) throws IOException {
+
+        String path = write(nodes, degree, distribution, seed);
+        Graph graph = new Graph();
+        graph.write_snapshot = false;
+        graph.buildGraph(path);
+        graph.seed = seed;
+        new File(path).delete();
+        return graph;
+
+    }
+
+    /**
+     * Finds the node whose share of the cumulative weights holds a value
+     * @param cumulative running total of the node weights
+     * @param value value between 0 and the total weight
+     * @return id of the node
+     */
+    private static int pick(double[] cumulative, double value){
+
+        int pos = Arrays.binarySearch(cumulative, value);
+        if(pos < 0){
+            pos = -pos - 1;
+        }
+        return Math.min(pos, cumulative.length - 1);
+
+    }
+
+}
@@ -0,0 +1,64 @@
+package jmh.java;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * @author Aaron Zachariah
+ * Benchmark of a single Graph.nextTick for several thread counts and frontier sizes. Every
+ * invocation starts from a new simulation with the given share of the nodes infected, so each
+ * measured tick processes a frontier of the same size. The worker threads are kept between
+ * invocations, as they are during a simulation
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class TickBenchmark extends GraphState {
+
+    /**
+     * Number of threads running the tick
+     */
+    @Param({"1", "2", "4", "8"})
+    public int threads;
+
+    /**
+     * Share of the nodes infected at the start of the tick
+     */
+    @Param({"0.001", "0.01", "0.1"})
+    public double infected;
+
+    /**
+     * Sets the thread count, which starts the workers on the first tick
+     */
+    @Setup(Level.Trial)
+    public void setThreads(){
+        graph.num_threads = threads;
+    }
+
+    /**
+     * Starts a new simulation before every tick
+     */
+    @Setup(Level.Invocation)
+    public void seed(){
+        infectFraction(infected);
+    }
+
+    @Benchmark
+    public int nextTick(){
+        graph.nextTick();
+        return graph.infected;
+    }
+
+}
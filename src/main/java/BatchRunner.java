@@ -0,0 +1,403 @@
+package main.java;
+
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.Locale;
+import javax.management.JMException;
+
+/**
+ * @author Aaron Zachariah
+ * Headless version of the simulation, used when the application is started with command line
+ * arguments. Loads a graph, seeds the infection, runs ticks until no nodes are infected or the
+ * tick limit is reached and writes the node counts of every tick as CSV.
+ *
+ * With --replicates the runner runs an Ensemble instead and writes the aggregated counts of
+ * every tick, using --threads as the number of replicates run at the same time. With --sweep it
+ * runs a Sweep over the listed parameter values and writes one row per run.
+ *
+ * The CSV goes to standard output or to the file given with --out. The wall clock time of each
+ * phase of the run is printed to standard error, so it does not mix with the data.
+ */
+public class BatchRunner {
+
+    /**
+     * Usage message printed when the arguments are invalid
+     */
+    public static final String USAGE =
+        "Usage: java main.java.Main --graph <file> [options]\n" +
+        "  --graph <file>      adjacency list or snapshot to load (required)\n" +
+        "  --snapshot <on|off> save <file>.snap for faster loads of the same file (default off)\n" +
+        "  --seed <strategy>   random, degree or bfs (default random)\n" +
+        "  --ticks <N>         stop after N ticks, 0 for no limit (default 0)\n" +
+        "  --threads <N>       number of threads (default 1)\n" +
+        "  --engine <engine>   tick or event, the continuous time engine (default tick)\n" +
+        "  --transmission <m>  quota or binomial, a chance per edge (default quota)\n" +
+        "  --replicates <N>    run N replicates and write their aggregated counts\n" +
+        "  --sweep <spec>      sweep parameters, e.g. \"lambda=1,1.5,2;d=0.3,0.5\"\n" +
+        "  --design <design>   grid or lhs design for --sweep (default grid)\n" +
+        "  --samples <N>       configurations drawn by the lhs design (default 10)\n" +
+        "  --random-seed <N>   master seed of the random numbers (default random)\n" +
+        "  --jmx <name>        publish the tick statistics as a JMX MBean with this name\n" +
+        "  --out <file>        write the CSV to a file instead of standard output\n" +
+        "  --n <N>             nodes infected by the random strategy\n" +
+        "  --s <N>             degree above which the degree strategy infects\n" +
+        "  --k <N>             nodes infected by the bfs strategy\n" +
+        "  --d <rate>          recovery rate\n" +
+        "  --t <N>             period of infection in ticks\n" +
+        "  --lambda <rate>     force of infection";
+
+    /**
+     * Graph object used for the simulation
+     */
+    Graph graph = new Graph();
+
+    /**
+     * Path of the graph to load
+     */
+    String graph_path = null;
+
+    /**
+     * Seeding strategy passed to Graph.seedInfection
+     */
+    String strategy = "random";
+
+    /**
+     * Largest number of ticks to run, 0 for no limit
+     */
+    int max_ticks = 0;
+
+    /**
+     * Number of ensemble replicates, 0 for a single run
+     */
+    int replicates = 0;
+
+    /**
+     * Parameter sweep, or null when no --sweep is given
+     */
+    Sweep sweep = null;
+
+    /**
+     * Name of the JMX MBean publishing the tick statistics, or null to not publish them
+     */
+    String jmx_name = null;
+
+    /**
+     * Path of the CSV output, or null for standard output
+     */
+    String out_path = null;
+
+    /**
+     * Method to read the command line arguments into the runner and the graph's parameters
+     * @param args command line arguments
+     * @throws IllegalArgumentException if an argument is unknown, missing its value or invalid
+     */
+    public void parse(String[] args){
+
+        for(int i = 0; i < args.length; i++){
+
+            String option = args[i];
+            if(i + 1 >= args.length){
+                throw new IllegalArgumentException("Missing value for " + option);
+            }
+            String value = args[++i];
+
+            try{
+                if(option.equals("--graph")){
+                    graph_path = value;
+                } else if(option.equals("--snapshot")){
+                    if(!value.equals("on") && !value.equals("off")){
+                        throw new IllegalArgumentException("Invalid value for --snapshot: " + value);
+                    }
+                    graph.write_snapshot = value.equals("on");
+                } else if(option.equals("--seed")){
+                    strategy = value;
+                } else if(option.equals("--ticks")){
+                    max_ticks = atLeast(option, Integer.parseInt(value), 0);
+                } else if(option.equals("--threads")){
+                    graph.num_threads = atLeast(option, Integer.parseInt(value), 1);
+                } else if(option.equals("--engine")){
+                    if(!value.equals("tick") && !value.equals("event")){
+                        throw new IllegalArgumentException("Unknown engine: " + value);
+                    }
+                    graph.engine = value;
+                } else if(option.equals("--transmission")){
+                    if(!value.equals("quota") && !value.equals("binomial")){
+                        throw new IllegalArgumentException("Unknown transmission: " + value);
+                    }
+                    graph.transmission = value;
+                } else if(option.equals("--replicates")){
+                    replicates = atLeast(option, Integer.parseInt(value), 1);
+                } else if(option.equals("--sweep")){
+                    sweep().parse(value);
+                } else if(option.equals("--design")){
+                    if(!value.equals("grid") && !value.equals("lhs")){
+                        throw new IllegalArgumentException("Unknown sweep design: " + value);
+                    }
+                    sweep().design = value;
+                } else if(option.equals("--samples")){
+                    sweep().samples = atLeast(option, Integer.parseInt(value), 1);
+                } else if(option.equals("--random-seed")){
+                    graph.seed = Long.parseLong(value);
+                } else if(option.equals("--jmx")){
+                    jmx_name = value;
+                } else if(option.equals("--out")){
+                    out_path = value;
+                } else if(option.equals("--n")){
+                    graph.n_infected = atLeast(option, Integer.parseInt(value), 1);
+                } else if(option.equals("--s")){
+                    graph.s_infected = atLeast(option, Integer.parseInt(value), 0);
+                } else if(option.equals("--k")){
+                    graph.k_infected = atLeast(option, Integer.parseInt(value), 1);
+                } else if(option.equals("--d")){
+                    double d = Double.parseDouble(value);
+                    if(d < 0.0 || d > 1.0){
+                        throw new IllegalArgumentException("Invalid rate value for --d: " + value);
+                    }
+                    graph.d = d;
+                } else if(option.equals("--t")){
+                    graph.t = atLeast(option, Integer.parseInt(value), 1);
+                } else if(option.equals("--lambda")){
+                    double lambda = Double.parseDouble(value);
+                    if(lambda <= 0.0){
+                        throw new IllegalArgumentException("Invalid FOI for --lambda: " + value);
+                    }
+                    graph.lambda = lambda;
+                } else {
+                    throw new IllegalArgumentException("Unknown option " + option);
+                }
+            } catch (NumberFormatException nfe){
+                throw new IllegalArgumentException("Invalid number for " + option + ": " + value);
+            }
+
+        }
+
+        if(graph_path == null){
+            throw new IllegalArgumentException("Missing --graph");
+        }
+        if(!strategy.equals("random") && !strategy.equals("degree") && !strategy.equals("bfs")){
+            throw new IllegalArgumentException("Unknown seeding strategy: " + strategy);
+        }
+
+    }
+
+    /**
+     * Getter for the sweep, creating it the first time a sweep option is read
+     * @return the sweep
+     */
+    private Sweep sweep(){
+        if(sweep == null){
+            sweep = new Sweep(graph);
+        }
+        return sweep;
+    }
+
+    /**
+     * Checks the lower bound of an integer option
+     * @param option name of the option
+     * @param value value given for the option
+     * @param min smallest allowed value
+     * @return the value
+     */
+    private static int atLeast(String option, int value, int min){
+        if(value < min){
+            throw new IllegalArgumentException(option + " must be >= " + min);
+        }
+        return value;
+    }
+
+    /**
+     * Method to load the graph, seed the infection and run the simulation
+     * @throws IOException exception thrown on IO error when reading the graph or writing the output
+     */
+    public void run() throws IOException {
+
+        long start = System.nanoTime();
+        graph.buildGraph(graph_path);
+        System.err.println(graph.load_report);
+        System.err.println("random seed: " + graph.seed);
+        long loaded = System.nanoTime();
+        if(graph.size() == 0){
+            throw new IOException("Graph " + graph_path + " has no edges");
+        }
+
+        if(sweep != null){
+            runSweep(loaded);
+            return;
+        }
+        if(replicates > 0){
+            runEnsemble(loaded);
+            return;
+        }
+
+        if(jmx_name != null){
+            try{
+                graph.stats.register(jmx_name);
+            } catch (JMException e){
+                throw new IOException("Could not publish the tick statistics: " + e.getMessage(), e);
+            }
+        }
+
+        graph.seedInfection(strategy);
+        long seeded = System.nanoTime();
+
+        PrintStream out = open();
+        long tick_total = 0;
+        try{
+            out.println("tick,susceptible,infected,recovered,dead,tick_ms");
+            printTick(out, 0);
+            while(graph.infected > 0 && (max_ticks == 0 || graph.tick < max_ticks)){
+                long tick_start = System.nanoTime();
+                graph.nextTick();
+                long elapsed = System.nanoTime() - tick_start;
+                tick_total += elapsed;
+                printTick(out, elapsed);
+            }
+        } finally{
+            graph.shutdown();
+            graph.stats.unregister();
+            if(out != System.out){
+                out.close();
+            } else {
+                out.flush();
+            }
+        }
+        long done = System.nanoTime();
+
+        System.err.println(String.format("load: %.3f ms", (loaded - start) / 1e6));
+        System.err.println(String.format("seed: %.3f ms", (seeded - loaded) / 1e6));
+        System.err.println(String.format("simulate: %.3f ms (%d ticks, %.3f ms/tick)",
+            tick_total / 1e6, graph.tick, graph.tick == 0 ? 0.0 : tick_total / 1e6 / graph.tick));
+        System.err.println(String.format("total: %.3f ms", (done - start) / 1e6));
+        TickStats stats = graph.stats;
+        if(stats.getTotalAllocatedBytes() > 0){
+            System.err.println(String.format("allocated: %.1f KB/tick", stats.getTotalAllocatedBytes() / 1024.0 / Math.max(1, stats.getTotalTicks())));
+        }
+
+    }
+
+    /**
+     * Runs the ensemble on the loaded graph and writes the aggregated counts
+     * @param loaded time the graph finished loading, from System.nanoTime()
+     * @throws IOException exception thrown on IO error when writing the output
+     */
+    private void runEnsemble(long loaded) throws IOException {
+
+        Ensemble ensemble = new Ensemble(graph);
+        ensemble.replicates = replicates;
+        ensemble.strategy = strategy;
+        ensemble.max_ticks = max_ticks;
+        ensemble.num_threads = graph.num_threads;
+        try{
+            ensemble.run();
+        } catch (InterruptedException e){
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while running the ensemble", e);
+        }
+        long simulated = System.nanoTime();
+
+        PrintStream out = open();
+        try{
+            ensemble.write(out);
+        } finally{
+            if(out != System.out){
+                out.close();
+            } else {
+                out.flush();
+            }
+        }
+        long done = System.nanoTime();
+
+        System.err.println(String.format("simulate: %.3f ms (%d replicates, %d ticks)",
+            (simulated - loaded) / 1e6, replicates, ensemble.getTicks() - 1));
+        System.err.println(String.format("write: %.3f ms", (done - simulated) / 1e6));
+
+    }
+
+    /**
+     * Runs the sweep on the loaded graph and writes its results table. Every configuration is
+     * run once, or --replicates times when it is given
+     * @param loaded time the graph finished loading, from System.nanoTime()
+     * @throws IOException exception thrown on IO error when writing the output
+     */
+    private void runSweep(long loaded) throws IOException {
+
+        sweep.runs = Math.max(1, replicates);
+        sweep.strategy = strategy;
+        sweep.max_ticks = max_ticks;
+        sweep.num_threads = graph.num_threads;
+        try{
+            sweep.run();
+        } catch (InterruptedException e){
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while running the sweep", e);
+        }
+        long simulated = System.nanoTime();
+
+        PrintStream out = open();
+        try{
+            sweep.write(out);
+        } finally{
+            if(out != System.out){
+                out.close();
+            } else {
+                out.flush();
+            }
+        }
+        long done = System.nanoTime();
+
+        System.err.println(String.format("simulate: %.3f ms (%d runs)", (simulated - loaded) / 1e6, sweep.size()));
+        System.err.println(String.format("write: %.3f ms", (done - simulated) / 1e6));
+
+    }
+
+    /**
+     * Opens the CSV output
+     * @return the stream to write the CSV to
+     * @throws FileNotFoundException exception thrown if the output file cannot be created
+     */
+    private PrintStream open() throws FileNotFoundException {
+        if(out_path == null){
+            return System.out;
+        }
+        return new PrintStream(new FileOutputStream(out_path));
+    }
+
+    /**
+     * Writes the node counts of the current tick as a CSV row
+     * @param out stream to write to
+     * @param elapsed wall clock time of the tick in nanoseconds
+     */
+    private void printTick(PrintStream out, long elapsed){
+        out.println(String.format(Locale.ROOT, "%d,%d,%d,%d,%d,%.3f", graph.tick, graph.susceptible, graph.infected,
+            graph.recovered, graph.dead, elapsed / 1e6));
+    }
+
+    /**
+     * Method to run the headless simulation from the command line
+     * @param args command line arguments, see USAGE
+     * @return exit code for the process, 0 on success
+     */
+    public static int run(String[] args){
+
+        BatchRunner runner = new BatchRunner();
+        try{
+            runner.parse(args);
+        } catch (IllegalArgumentException e){
+            System.err.println("ERROR: " + e.getMessage());
+            System.err.println(USAGE);
+            return 2;
+        }
+
+        try{
+            runner.run();
+        } catch (IOException e){
+            System.err.println("ERROR: " + e.getMessage());
+            return 1;
+        }
+        return 0;
+
+    }
+
+}
@@ -0,0 +1,123 @@
+package main.java;
+
+/**
+ * @author Aaron Zachariah
+ * Frozen, read-only version of a Graph stored in compressed sparse row (CSR) form.
+ * Every node is identified by an integer id in the range [0, size()). The neighbors of
+ * node u are stored in neighbors[offsets[u]] ... neighbors[offsets[u+1] - 1]
+ *
+ * A CSRGraph is never modified after it is built, so it can be read by any number of
+ * threads without locking
+ */
+public class CSRGraph {
+
+    /**
+     * Start of each node's adjacency list in the neighbors array. Has size() + 1 entries
+     */
+    public final int[] offsets;
+
+    /**
+     * Destination node ids of every edge, grouped by source node
+     */
+    public final int[] neighbors;
+
+    /**
+     * Same graph with every edge reversed, built by the first call to reverse()
+     */
+    private CSRGraph reverse = null;
+
+    /**
+     * CSRGraph constructor
+     * @param offsets start index of each node's adjacency list, with one extra entry at the end
+     * @param neighbors destination ids of all edges, grouped by source node
+     */
+    public CSRGraph(int[] offsets, int[] neighbors){
+
+        this.offsets = offsets;
+        this.neighbors = neighbors;
+
+    }
+
+    /**
+     * Builds a CSRGraph out of an unordered list of directed edges
+     * Edge i goes from src[i] to dst[i]. Edges keep their input order inside each adjacency list
+     * @param n number of nodes
+     * @param src source node id of each edge
+     * @param dst destination node id of each edge
+     * @param m number of edges to read from src and dst
+     * @return the frozen graph
+     */
+    public static CSRGraph build(int n, int[] src, int[] dst, int m){
+
+        int[] offsets = new int[n + 1];
+        int[] neighbors = new int[m];
+
+        // count the degree of every node
+        for(int i = 0; i < m; i++){
+            offsets[src[i] + 1]++;
+        }
+        // prefix sum to get the starting offsets
+        for(int u = 0; u < n; u++){
+            offsets[u + 1] += offsets[u];
+        }
+        // place every edge in its slot
+        int[] fill = new int[n];
+        for(int i = 0; i < m; i++){
+            int u = src[i];
+            neighbors[offsets[u] + fill[u]] = dst[i];
+            fill[u]++;
+        }
+
+        return new CSRGraph(offsets, neighbors);
+
+    }
+
+    /**
+     * Getter for the graph with every edge reversed, so the neighbors of node u in it are the nodes
+     * with an edge to u. Built on the first call and shared by every later call
+     * @return the reversed graph
+     */
+    public synchronized CSRGraph reverse(){
+
+        if(reverse == null){
+            int n = size();
+            int m = edgeCount();
+            int[] src = new int[m];
+            for(int u = 0; u < n; u++){
+                for(int j = offsets[u]; j < offsets[u + 1]; j++){
+                    src[j] = u;
+                }
+            }
+            reverse = build(n, neighbors, src, m);
+            reverse.reverse = this;
+        }
+        return reverse;
+
+    }
+
+    /**
+     * size getter
+     * @return number of nodes in the graph
+     */
+    public int size(){
+        return offsets.length - 1;
+    }
+
+    /**
+     * edge count getter
+     * @return number of directed edges in the graph
+     */
+    public int edgeCount(){
+        return neighbors.length;
+    }
+
+    /**
+     * get the degree of a node
+     * @param u id of the node
+     * @return number of outgoing edges of the node
+     */
+    public int degree(int u){
+        return offsets[u + 1] - offsets[u];
+    }
+
+}
@@ -1,132 +1,136 @@
 package main.java;
 
-import java.util.ArrayList;
-
 import javax.swing.JPanel;
 import java.awt.*;
 import org.jfree.chart.ChartFactory;
 import org.jfree.chart.ChartPanel;
 import org.jfree.chart.JFreeChart;
-import org.jfree.data.xy.XYDataset;
-import org.jfree.data.xy.XYSeries;
-import org.jfree.data.xy.XYSeriesCollection;
+import org.jfree.data.general.DatasetChangeEvent;
+import org.jfree.data.xy.AbstractXYDataset;
 
 /**
  * @author Aaron Zachariah
  * Chart class using the JFreeChart library - see: https://www.jfree.org/jfreechart/
  * This is a wrapper class for a JPanel, which will hold the components that display the line chart
+ *
+ * The chart is created once and added to the panel by the constructor. It plots the columns of
+ * a TimeSeries, reading the values straight from the store, so nothing is copied when ticks are
+ * added. Ticks which the store has folded into buckets are plotted as the mean of their bucket.
+ * The chart is redrawn once when update() is called, however many ticks were added since the last update.
  * @see <a href="https://www.jfree.org/jfreechart/">JFreeChart</a>
  */
 public class Chart {
-    
+
+    /**
+     * Names of the plotted columns of the store, in column order
+     */
+    public static final String[] SERIES = {"Susceptible", "Infected", "Recovered", "Dead"};
+
     /**
      * Reference to JPanel object from GUI
      */
     JPanel panel = null;
 
     /**
-     * Chart constructor
-     * @param p - JPanel reference from the GUI class
+     * Store holding the statistics of every tick
      */
-    public Chart(JPanel p){
-        
-        this.panel = p;
+    TimeSeries data;
 
-    }
+    /**
+     * Dataset reading the store
+     */
+    public StoreDataset dataset = new StoreDataset();
+
+    /**
+     * Chart drawn on the panel
+     */
+    public JFreeChart chart;
+
+    /**
+     * Dataset which reads the columns of the store in place. Each series is one column,
+     * made of the buckets of older ticks followed by the recent ticks
+     */
+    public class StoreDataset extends AbstractXYDataset {
+
+        private static final long serialVersionUID = 1L;
+
+        public int getSeriesCount(){
+            return SERIES.length;
+        }
+
+        @SuppressWarnings("rawtypes")
+        public Comparable getSeriesKey(int series){
+            return SERIES[series];
+        }
+
+        public int getItemCount(int series){
+            return data.bucketCount() + data.recentSize();
+        }
+
+        public double getXValue(int series, int item){
+            int buckets = data.bucketCount();
+            if(item < buckets){
+                return (data.bucketFirst(item) + data.bucketLast(item)) / 2.0;
+            }
+            return data.recentTick(item - buckets);
+        }
 
+        public double getYValue(int series, int item){
+            int buckets = data.bucketCount();
+            if(item < buckets){
+                return data.bucketMean(series, item);
+            }
+            return data.recentValue(series, item - buckets);
+        }
+
+        public Number getX(int series, int item){
+            return getXValue(series, item);
+        }
+
+        public Number getY(int series, int item){
+            return getYValue(series, item);
+        }
+
+    }
 
     /**
-     * Method to reset panel components, and repaint the new chart onto the panel
-     * See Documentation for createDataset() for extra info on the parameters
-     * @param susceptible data for susceptible nodes
-     * @param infected data for infected nodes
-     * @param recovered data for recovered nodes
-     * @param dead data for dead nodes
+     * Chart constructor, creates the chart and adds it to the panel
+     * @param p - JPanel reference from the GUI class
+     * @param data store whose first four columns are the susceptible, infected, recovered and dead counts
      */
-    public void updatePanel(ArrayList<Integer> susceptible, ArrayList<Integer> infected, 
-    ArrayList<Integer> recovered, ArrayList<Integer> dead ){
-        // clear panel contents
-        this.panel.removeAll();
+    public Chart(JPanel p, TimeSeries data){
+
+        this.panel = p;
+        this.data = data;
+
         this.panel.setLayout(new BorderLayout());
+        this.panel.add(createChartPanel(), BorderLayout.CENTER);
 
-        // get new chart panel and add to parent panel
-        JPanel chartpanel = createChartPanel(susceptible, infected, recovered, dead);
-        this.panel.add(chartpanel, BorderLayout.CENTER);
-        this.panel.revalidate();
-        this.panel.repaint();
-        
-    }   
+    }
 
     /**
-     * Method to create the JPanel with the new chart data
-     * See Documentation for createDataset() for extra info on the parameters
-     * @param susceptible data for susceptible nodes
-     * @param infected data for infected nodes
-     * @param recovered data for recovered nodes
-     * @param dead data for dead nodes
+     * Method to create the JPanel which shows the chart
      * @return returns the JPanel which contains the chart
      */
-    public JPanel createChartPanel(ArrayList<Integer> susceptible, ArrayList<Integer> infected, 
-    ArrayList<Integer> recovered, ArrayList<Integer> dead ){
+    public JPanel createChartPanel(){
 
         String title = "Simulation Data";
         String xLabel = "Tick";
         String yLabel = "# of Nodes";
 
-        XYDataset data = createDataset(susceptible, infected, recovered, dead);
+        chart = ChartFactory.createXYLineChart(title, xLabel, yLabel, dataset);
 
-        JFreeChart chart = ChartFactory.createXYLineChart(title, xLabel, yLabel, data);
-        
         return new ChartPanel(chart);
 
     }
 
-
     /**
-     * Method to create a dataset which is plotted on a JFreeChart
-     * Uses four ArrayList containers, which hold the data to be plotted
-     * Data is stored as such: each index i is a tick (x pos)
-     * and ArrayList[i] is the data (y-pos) at that tick 
-     * @param susceptible data for susceptible nodes
-     * @param infected data for infected nodes
-     * @param recovered data for recovered nodes
-     * @param dead data for dead nodes
-     * @return XYDataset of a collection of series of xy data points as pairs (x, y)
+     * Method to redraw the chart after ticks were added to the store
      */
-    public XYDataset createDataset(ArrayList<Integer> susceptible, ArrayList<Integer> infected, 
-    ArrayList<Integer> recovered, ArrayList<Integer> dead )
-    {   // dataset
-        XYSeriesCollection dataset = new XYSeriesCollection();
-        // series for the dataset
-        XYSeries series1 = new XYSeries("Susceptible");
-        XYSeries series2 = new XYSeries("Infected");
-        XYSeries series3 = new XYSeries("Recovered");
-        XYSeries series4 = new XYSeries("Dead");
-        // add data to series
-        for(int i = 0;i < susceptible.size(); i++){
-            series1.add(i, susceptible.get(i));
-        }
-        for(int i = 0;i < infected.size(); i++){
-            series2.add(i, infected.get(i));
-        }
-        for(int i = 0;i < recovered.size(); i++){
-            series3.add(i, recovered.get(i));
-        }
-        for(int i = 0;i < dead.size(); i++){
-            series4.add(i, dead.get(i));
-        }
+    public void update(){
 
-        // add series to dataset
-        dataset.addSeries(series1);
-        dataset.addSeries(series2);
-        dataset.addSeries(series3);
-        dataset.addSeries(series4); 
+        chart.getXYPlot().datasetChanged(new DatasetChangeEvent(this, dataset));
 
-        return dataset;
-        
     }
 
-    
-
-
 }
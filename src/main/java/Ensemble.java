@@ -0,0 +1,236 @@
+package main.java;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * @author Aaron Zachariah
+ * Monte Carlo ensemble of simulations which all run on the topology of one loaded Graph.
+ * Each replicate is made with Graph.replicate(), so it shares the CSR graph and the name
+ * dictionary and only has its own state arrays. The replicates run in parallel, one per thread.
+ *
+ * Once every replicate is done the node counts are aggregated per tick into the mean, the
+ * quantiles and the min/max envelope of each compartment. A replicate which ends before the
+ * others keeps its final counts for the remaining ticks.
+ */
+public class Ensemble {
+
+    /**
+     * Names of the four compartments, in the order they are stored
+     */
+    public static final String[] COMPARTMENTS = {"susceptible", "infected", "recovered", "dead"};
+
+    /**
+     * Quantiles reported for every compartment and tick
+     */
+    public static final double[] QUANTILES = {0.05, 0.25, 0.5, 0.75, 0.95};
+
+    /**
+     * Graph holding the shared topology and the simulation parameters
+     */
+    private final Graph graph;
+
+    /**
+     * Number of replicates to run
+     */
+    public int replicates = 100;
+
+    /**
+     * Seeding strategy passed to Graph.seedInfection
+     */
+    public String strategy = "random";
+
+    /**
+     * Largest number of ticks to run per replicate, 0 for no limit
+     */
+    public int max_ticks = 0;
+
+    /**
+     * Number of replicates run at the same time
+     */
+    public int num_threads = Runtime.getRuntime().availableProcessors();
+
+    /**
+     * Node counts of every replicate, indexed by replicate, compartment and tick
+     */
+    private int[][][] results;
+
+    /**
+     * Ensemble constructor
+     * @param graph loaded graph whose topology and parameters are used by every replicate
+     */
+    public Ensemble(Graph graph){
+        this.graph = graph;
+    }
+
+    /**
+     * Method to run every replicate and keep its node counts
+     * @throws InterruptedException exception thrown if the thread is interrupted while waiting for the replicates
+     */
+    public void run() throws InterruptedException {
+
+        graph.freeze();
+        results = new int[replicates][][];
+
+        ExecutorService pool = Executors.newFixedThreadPool(Math.max(1, Math.min(num_threads, replicates)));
+        try{
+            ArrayList<Future<int[][]>> futures = new ArrayList<Future<int[][]>>();
+            for(int r = 0; r < replicates; r++){
+                final int index = r;
+                futures.add(pool.submit(new Callable<int[][]>(){
+                    public int[][] call(){
+                        // every replicate gets its own seed, made from the graph's seed and its index
+                        Graph replicate = graph.replicate();
+                        replicate.seed = RandomStream.stream(graph.seed, RandomStream.REPLICATE, 0, index);
+                        return runReplicate(replicate);
+                    }
+                }));
+            }
+            for(int r = 0; r < replicates; r++){
+                results[r] = futures.get(r).get();
+            }
+        } catch (ExecutionException e){
+            if(e.getCause() instanceof RuntimeException){
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        } finally{
+            pool.shutdownNow();
+        }
+
+    }
+
+    /**
+     * Seeds and runs a single replicate until no nodes are infected or the tick limit is reached
+     * @param replicate graph made by Graph.replicate()
+     * @return node counts indexed by compartment and tick
+     */
+    private int[][] runReplicate(Graph replicate){
+
+        IntList[] counts = new IntList[COMPARTMENTS.length];
+        for(int c = 0; c < counts.length; c++){
+            counts[c] = new IntList();
+        }
+
+        try{
+            replicate.seedInfection(strategy);
+            record(replicate, counts);
+            while(replicate.infected > 0 && (max_ticks == 0 || replicate.tick < max_ticks)){
+                replicate.nextTick();
+                record(replicate, counts);
+            }
+        } finally{
+            replicate.shutdown();
+        }
+
+        int[][] series = new int[counts.length][];
+        for(int c = 0; c < counts.length; c++){
+            series[c] = Arrays.copyOf(counts[c].data, counts[c].size());
+        }
+        return series;
+
+    }
+
+    /**
+     * Adds the current node counts of a replicate to its series
+     * @param replicate the replicate
+     * @param counts series of each compartment
+     */
+    private static void record(Graph replicate, IntList[] counts){
+        counts[0].add(replicate.susceptible);
+        counts[1].add(replicate.infected);
+        counts[2].add(replicate.recovered);
+        counts[3].add(replicate.dead);
+    }
+
+    /**
+     * ticks getter
+     * @return number of ticks covered by the aggregated series, including tick 0
+     */
+    public int getTicks(){
+        int ticks = 0;
+        for(int[][] series : results){
+            ticks = Math.max(ticks, series[0].length);
+        }
+        return ticks;
+    }
+
+    /**
+     * Getter for the counts of one compartment at one tick, across all replicates
+     * @param compartment index into COMPARTMENTS
+     * @param tick the tick
+     * @return the count of every replicate, sorted in increasing order
+     */
+    public int[] getValues(int compartment, int tick){
+
+        int[] values = new int[results.length];
+        for(int r = 0; r < results.length; r++){
+            int[] series = results[r][compartment];
+            values[r] = series[Math.min(tick, series.length - 1)];
+        }
+        Arrays.sort(values);
+        return values;
+
+    }
+
+    /**
+     * Computes a quantile of sorted values, interpolating between the closest two values
+     * @param sorted values in increasing order
+     * @param q the quantile, between 0 and 1
+     * @return the quantile
+     */
+    public static double quantile(int[] sorted, double q){
+
+        double pos = q * (sorted.length - 1);
+        int lower = (int) Math.floor(pos);
+        int upper = Math.min(lower + 1, sorted.length - 1);
+        return sorted[lower] + (pos - lower) * (sorted[upper] - sorted[lower]);
+
+    }
+
+    /**
+     * Method to write the aggregated series as CSV, one row per tick and compartment
+     * @param out stream to write to
+     */
+    public void write(PrintStream out){
+
+        StringBuilder header = new StringBuilder("tick,compartment,mean,min");
+        for(double q : QUANTILES){
+            header.append(String.format(Locale.ROOT, ",q%02d", Math.round(q * 100)));
+        }
+        header.append(",max");
+        out.println(header);
+
+        int ticks = getTicks();
+        for(int tick = 0; tick < ticks; tick++){
+            for(int c = 0; c < COMPARTMENTS.length; c++){
+
+                int[] values = getValues(c, tick);
+                long sum = 0;
+                for(int v : values){
+                    sum += v;
+                }
+
+                StringBuilder row = new StringBuilder();
+                row.append(tick).append(',').append(COMPARTMENTS[c]);
+                row.append(String.format(Locale.ROOT, ",%.3f", (double) sum / values.length));
+                row.append(',').append(values[0]);
+                for(double q : QUANTILES){
+                    row.append(String.format(Locale.ROOT, ",%.3f", quantile(values, q)));
+                }
+                row.append(',').append(values[values.length - 1]);
+                out.println(row);
+
+            }
+        }
+
+    }
+
+}
@@ -0,0 +1,289 @@
+package main.java;
+
+import java.util.Arrays;
+
+/**
+ * @author Aaron Zachariah
+ * Continuous time, event driven version of the simulation, used by Graph.nextTick when
+ * Graph.engine is "event". It runs on the same topology, state arrays, counters and frontier as
+ * the tick engine, so the statistics, the chart and the headless runner work with either one.
+ *
+ * The parameters are read the same way as by the tick engine:
+ *  lambda - each infected node tries to infect a random neighbor at rate lambda per tick,
+ *           and the try succeeds if the neighbor is susceptible
+ *  t      - a node stays infected for exactly t ticks
+ *  d      - at the end of its infection a node recovers with probability d and dies otherwise
+ *
+ * Events are handled with the next reaction method. Every infected node has a single entry in
+ * an indexed priority queue holding the time of its next event, which is either its next try to
+ * infect a neighbor or the end of its infection. Handling an event only changes the entries of
+ * the node and of the neighbor it infects, so the work done grows with the number of events and
+ * not with the number of infected nodes times the number of ticks.
+ *
+ * Advancing to the next tick handles every event up to and including it, leaving the graph as it
+ * is at that tick. An infection which starts at a tick therefore ends at the tick t later, as with
+ * the tick engine. Nodes seeded between ticks are picked up by the next advance and start at the
+ * current tick.
+ * The event engine always runs on a single thread and does not use the graph's timing wheel.
+ */
+public class EventEngine {
+
+    /**
+     * Graph object used for the simulation
+     */
+    private final Graph graph;
+
+    /**
+     * Random numbers of the simulation, drawn from a single stream of the graph's seed
+     */
+    private final RandomStream rand;
+
+    /**
+     * Time up to which every event has been handled
+     */
+    private double now;
+
+    /**
+     * Time of each infected node's next try to infect a neighbor, and of the end of its infection
+     */
+    private final double[] next_infect;
+    private final double[] recover_time;
+
+    /**
+     * Priority queue of the infected nodes ordered by the time of their next event. heap holds
+     * node ids, and heap_pos gives the position of each node in heap, or -1 if it is not queued
+     */
+    private final int[] heap;
+    private final int[] heap_pos;
+    private int heap_size = 0;
+
+    /**
+     * Position of each infected node in the graph's frontier, so it can be removed in constant time
+     */
+    private final int[] frontier_pos;
+
+    /**
+     * Number of events handled so far
+     */
+    private long events = 0;
+
+    /**
+     * EventEngine constructor. The graph's topology must not change while the engine is used
+     * @param graph graph whose state is simulated, which must be frozen
+     */
+    public EventEngine(Graph graph){
+
+        this.graph = graph;
+        int n = graph.size();
+        this.rand = new RandomStream(RandomStream.stream(graph.seed, RandomStream.EVENT, graph.tick, 0));
+        this.now = graph.tick;
+        this.next_infect = new double[n];
+        this.recover_time = new double[n];
+        this.heap = new int[n];
+        this.heap_pos = new int[n];
+        this.frontier_pos = new int[n];
+        for(int u = 0; u < n; u++){
+            heap_pos[u] = -1;
+        }
+
+    }
+
+    /**
+     * Handles every event up to and including a given time
+     * @param until the time, usually the next tick
+     */
+    public void advance(double until){
+
+        // nodes seeded since the last advance were added to the end of the frontier
+        int queued = heap_size;
+        for(int i = queued; i < graph.frontier_size; i++){
+            start(graph.frontier[i], i, now);
+        }
+
+        while(heap_size > 0){
+            int u = heap[0];
+            double time = Math.min(next_infect[u], recover_time[u]);
+            if(time > until){
+                break;
+            }
+            events++;
+            if(next_infect[u] < recover_time[u]){
+                infectNeighbor(u, time);
+            } else {
+                resolve(u);
+            }
+        }
+
+        now = until;
+
+    }
+
+    /**
+     * Handles a try by an infected node to infect a random neighbor, and schedules its next try
+     * @param u the infected node
+     * @param time time of the try
+     */
+    private void infectNeighbor(int u, double time){
+
+        CSRGraph csr = graph.csr;
+        int v = csr.neighbors[csr.offsets[u] + rand.nextInt(csr.degree(u))];
+        if(graph.state[v] == Node.SUSCEPTIBLE){
+            graph.state[v] = Node.INFECTED;
+            graph.next_state[v] = Node.INFECTED;
+            graph.infected_at[v] = graph.tick + 1;
+            graph.leftSusceptible(v);
+            graph.susceptible--;
+            graph.infected++;
+            if(graph.frontier_size == graph.frontier.length){
+                graph.frontier = Arrays.copyOf(graph.frontier, graph.frontier_size * 2);
+            }
+            graph.frontier[graph.frontier_size] = v;
+            start(v, graph.frontier_size++, time);
+        }
+
+        next_infect[u] = time + nextDelay(u);
+        siftDown(heap_pos[u]);
+
+    }
+
+    /**
+     * Ends the infection of a node, which recovers or dies, and removes it from the queue and the frontier
+     * @param u the infected node
+     */
+    private void resolve(int u){
+
+        byte outcome = rand.nextDouble() <= graph.d ? Node.RECOVERED : Node.DEAD;
+        graph.state[u] = outcome;
+        graph.next_state[u] = outcome;
+        graph.infected--;
+        if(outcome == Node.RECOVERED){
+            graph.recovered++;
+        } else {
+            graph.dead++;
+        }
+
+        // move the last node of the frontier into the place of the resolved node
+        int last = graph.frontier[--graph.frontier_size];
+        graph.frontier[frontier_pos[u]] = last;
+        frontier_pos[last] = frontier_pos[u];
+
+        // move the last node of the queue into the place of the resolved node
+        int pos = heap_pos[u];
+        heap_pos[u] = -1;
+        heap_size--;
+        if(pos < heap_size){
+            int moved = heap[heap_size];
+            heap[pos] = moved;
+            heap_pos[moved] = pos;
+            siftDown(pos);
+            siftUp(heap_pos[moved]);
+        }
+
+    }
+
+    /**
+     * Queues a node which was just infected
+     * @param u the node
+     * @param index position of the node in the frontier
+     * @param time time it was infected
+     */
+    private void start(int u, int index, double time){
+
+        frontier_pos[u] = index;
+        next_infect[u] = time + nextDelay(u);
+        recover_time[u] = time + graph.t;
+        heap[heap_size] = u;
+        heap_pos[u] = heap_size;
+        heap_size++;
+        siftUp(heap_size - 1);
+
+    }
+
+    /**
+     * Draws the time until a node's next try to infect a neighbor
+     * @param u the infected node
+     * @return the delay, infinite if the node has no neighbors
+     */
+    private double nextDelay(int u){
+
+        if(graph.csr.degree(u) == 0 || graph.lambda <= 0){
+            return Double.POSITIVE_INFINITY;
+        }
+        return -Math.log(1.0 - rand.nextDouble()) / graph.lambda;
+
+    }
+
+    /**
+     * Getter for the time of a queued node's next event
+     * @param pos position of the node in the queue
+     * @return the time
+     */
+    private double key(int pos){
+        int u = heap[pos];
+        return Math.min(next_infect[u], recover_time[u]);
+    }
+
+    /**
+     * Moves a queued node towards the front of the queue until its parent is earlier
+     * @param pos position of the node in the queue
+     */
+    private void siftUp(int pos){
+
+        while(pos > 0){
+            int parent = (pos - 1) / 2;
+            if(key(parent) <= key(pos)){
+                break;
+            }
+            swap(pos, parent);
+            pos = parent;
+        }
+
+    }
+
+    /**
+     * Moves a queued node towards the back of the queue until its children are later
+     * @param pos position of the node in the queue
+     */
+    private void siftDown(int pos){
+
+        while(true){
+            int child = 2 * pos + 1;
+            if(child >= heap_size){
+                break;
+            }
+            if(child + 1 < heap_size && key(child + 1) < key(child)){
+                child++;
+            }
+            if(key(pos) <= key(child)){
+                break;
+            }
+            swap(pos, child);
+            pos = child;
+        }
+
+    }
+
+    /**
+     * Swaps two entries of the queue
+     * @param a position of the first entry
+     * @param b position of the second entry
+     */
+    private void swap(int a, int b){
+
+        int u = heap[a];
+        heap[a] = heap[b];
+        heap[b] = u;
+        heap_pos[heap[a]] = a;
+        heap_pos[heap[b]] = b;
+
+    }
+
+    /**
+     * events getter
+     * @return number of events handled so far
+     */
+    public long getEvents(){
+        return events;
+    }
+
+}
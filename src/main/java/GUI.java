@@ -5,7 +5,7 @@ import javax.swing.*;
 import javax.swing.filechooser.FileSystemView;
 import java.awt.event.*;
 import java.io.IOException;
-import java.util.ArrayList;
+import javax.management.JMException;
 
 /**
  * @author Aaron Zachariah
@@ -15,6 +15,10 @@ import java.util.ArrayList;
  * Will show useful statistics regarding the simulation as well as a useful chart plotting
  * the data
  * 
+ * Ticks are run in the background by a SimulationRunner, so the window stays responsive on
+ * big graphs. While a run is going on, a timer drains the node counts of the finished ticks at
+ * a fixed frame rate and refreshes the chart and the statistics once per frame.
+ * 
  */
 public class GUI extends JFrame {
     
@@ -43,6 +47,31 @@ public class GUI extends JFrame {
     JPanel centerPanel = new JPanel(new BorderLayout());
     Chart chart;
 
+    /**
+     * Runs the ticks on a background thread
+     */
+    SimulationRunner runner;
+
+    /**
+     * Number of times per second the chart and statistics are refreshed during a run
+     */
+    static final int FRAME_RATE = 30;
+
+    /**
+     * Timer which refreshes the view during a run
+     */
+    Timer frame_timer;
+
+    /**
+     * Node counts drained from the runner by the last frame, reused every frame
+     */
+    IntList frame = new IntList();
+
+    /**
+     * Button which pauses and resumes a run
+     */
+    JButton pause;
+
     /**
      * JLabels for statistics
      */
@@ -51,6 +80,7 @@ public class GUI extends JFrame {
     JLabel rec_count = new JLabel();
     JLabel dead_count = new JLabel();
     JLabel tick_count = new JLabel();
+    JLabel eff_count = new JLabel();
 
     /**
      * Various JLabels for application information
@@ -67,12 +97,20 @@ public class GUI extends JFrame {
     JLabel tc;
     
     /**
-     * Containers to hold the data for each statistic
+     * Number of recent ticks kept at full resolution in the history, and number of buckets for older ticks
      */
-    ArrayList<Integer> susceptible = new ArrayList<Integer>();
-    ArrayList<Integer> infected = new ArrayList<Integer>();
-    ArrayList<Integer> recovered = new ArrayList<Integer>();
-    ArrayList<Integer> dead = new ArrayList<Integer>();
+    static final int HISTORY_TICKS = 10000;
+    static final int HISTORY_BUCKETS = 1000;
+
+    /**
+     * Store holding the susceptible, infected, recovered and dead counts of each tick
+     */
+    TimeSeries history = new TimeSeries(4, HISTORY_TICKS, HISTORY_BUCKETS);
+
+    /**
+     * Row of counts added to the history, reused for every tick
+     */
+    int[] row = new int[4];
 
     /**
      * GUI contructor
@@ -83,9 +121,29 @@ public class GUI extends JFrame {
 
         super(name);
         this.graph = g;
-        this.chart = new Chart(centerPanel);
+        this.chart = new Chart(centerPanel, history);
+        this.runner = new SimulationRunner(g);
+        // publish the tick statistics so they can be watched with jconsole
+        try{
+            g.stats.register("gui");
+        } catch (JMException e){
+            System.err.println("Could not publish the tick statistics: " + e.getMessage());
+        }
+        this.frame_timer = new Timer(1000 / FRAME_RATE, new ActionListener(){
+            public void actionPerformed(ActionEvent e){
+                drawFrame();
+            }
+        });
 
         setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
+        // stop the simulation workers when the window is closed, once the running tick is done
+        addWindowListener(new WindowAdapter(){
+            public void windowClosing(WindowEvent e){
+                runner.shutdown();
+                graph.shutdown();
+                graph.stats.unregister();
+            }
+        });
         setResizable(false);
         setSize(new Dimension(1200, 800));
         setTitle("Simulator");
@@ -177,9 +235,10 @@ public class GUI extends JFrame {
                     
                     String path = j.getSelectedFile().getAbsolutePath();
                     // build the graph if the simulation has yet to
-                    if(graph.tick == 0 && graph.size() == 0){
+                    if(graph.tick == 0 && graph.size() == 0 && !runner.isRunning()){
                         try {
                             graph.buildGraph(path);
+                            JOptionPane.showMessageDialog(null, graph.load_report, "Graph Loaded", JOptionPane.INFORMATION_MESSAGE);
                         } catch (IOException e){
                             JOptionPane.showMessageDialog(null, "IO Error while building graph!", "Error", JOptionPane.ERROR_MESSAGE);
                         }
@@ -211,7 +270,7 @@ public class GUI extends JFrame {
         SetThreadCount.addActionListener(new ActionListener(){
 
             public void actionPerformed(ActionEvent evt){
-                if(graph.tick == 0){
+                if(graph.tick == 0 && !runner.isRunning()){
                     String input = JOptionPane.showInputDialog(null, "Enter the Thread Count");
                     int n;
                     try{
@@ -231,12 +290,44 @@ public class GUI extends JFrame {
             }
         });
         config.add(SetThreadCount);
+        // set engine
+        JMenuItem SetEngine = new JMenuItem("Set Engine");
+        SetEngine.addActionListener(new ActionListener(){
+
+            public void actionPerformed(ActionEvent evt){
+                if(graph.tick == 0 && !runner.isRunning()){
+                    String[] engines = {"tick", "event"};
+                    Object input = JOptionPane.showInputDialog(null, "Choose the Engine", "Engine",
+                        JOptionPane.PLAIN_MESSAGE, null, engines, graph.engine);
+                    if(input != null){
+                        graph.engine = (String) input;
+                    }
+                }
+            }
+        });
+        config.add(SetEngine);
+        // set transmission
+        JMenuItem SetTransmission = new JMenuItem("Set Transmission");
+        SetTransmission.addActionListener(new ActionListener(){
+
+            public void actionPerformed(ActionEvent evt){
+                if(graph.tick == 0 && !runner.isRunning()){
+                    String[] modes = {"quota", "binomial"};
+                    Object input = JOptionPane.showInputDialog(null, "Choose the Transmission", "Transmission",
+                        JOptionPane.PLAIN_MESSAGE, null, modes, graph.transmission);
+                    if(input != null){
+                        graph.transmission = (String) input;
+                    }
+                }
+            }
+        });
+        config.add(SetTransmission);
         // set n
         JMenuItem n = new JMenuItem("Set n");
         n.addActionListener(new ActionListener(){
 
             public void actionPerformed(ActionEvent e){
-                if(graph.tick != 0) return;
+                if(graph.tick != 0 || runner.isRunning()) return;
                 // get input
                 String input = JOptionPane.showInputDialog(null, "Enter the n parameter");
                 int n;
@@ -260,7 +351,7 @@ public class GUI extends JFrame {
         s.addActionListener(new ActionListener(){
 
             public void actionPerformed(ActionEvent evt){
-                if(graph.tick != 0) return;
+                if(graph.tick != 0 || runner.isRunning()) return;
                 // get input
                 String input = JOptionPane.showInputDialog(null, "Enter the s parameter");
                 int s;
@@ -284,7 +375,7 @@ public class GUI extends JFrame {
         k.addActionListener(new ActionListener(){
 
             public void actionPerformed(ActionEvent arg0){
-                if(graph.tick != 0) return;
+                if(graph.tick != 0 || runner.isRunning()) return;
                 // get input
                 String input = JOptionPane.showInputDialog(null, "Enter the s parameter");
                 int k;
@@ -307,7 +398,7 @@ public class GUI extends JFrame {
         JMenuItem d = new JMenuItem("Set Recovery Rate");
         d.addActionListener(new ActionListener(){
             public void actionPerformed(ActionEvent arg1){
-                if(graph.tick != 0) return;
+                if(graph.tick != 0 || runner.isRunning()) return;
                 // get input
                 String input = JOptionPane.showInputDialog(null, "Enter the recovery rate");
                 double d;
@@ -330,7 +421,7 @@ public class GUI extends JFrame {
         time.addActionListener(new ActionListener(){
            
             public void actionPerformed(ActionEvent evt){
-                if(graph.tick != 0) return;
+                if(graph.tick != 0 || runner.isRunning()) return;
                 // get input
                 String input = JOptionPane.showInputDialog(null, "Enter the recovery rate");
                 int length;
@@ -353,7 +444,7 @@ public class GUI extends JFrame {
         foi.addActionListener(new ActionListener(){
 
             public void actionPerformed(ActionEvent ev){
-                if(graph.tick != 0) return;
+                if(graph.tick != 0 || runner.isRunning()) return;
                 // get input
                 String input = JOptionPane.showInputDialog(null, "Enter the recovery rate");
                 double lam;
@@ -387,11 +478,27 @@ public class GUI extends JFrame {
      */
     public void refreshStats(){
 
-        susc_count.setText(String.format("Susceptible Nodes: %d", graph.susceptible));
-        inf_count.setText(String.format("Infected Nodes: %d", graph.infected));
-        rec_count.setText(String.format("Recovered Nodes: %d", graph.recovered));
-        dead_count.setText(String.format("Dead Nodes: %d", graph.dead));
-        tick_count.setText(String.format("Current Tick: %d", graph.tick));
+        refreshStats(graph.tick, graph.susceptible, graph.infected, graph.recovered, graph.dead);
+
+    }
+
+    /**
+     * Function to refresh all the statistics fields with the node counts of a given tick,
+     * used during a run when the graph itself may be in the middle of a tick
+     * @param tick the tick
+     * @param s number of susceptible nodes
+     * @param i number of infected nodes
+     * @param r number of recovered nodes
+     * @param d number of dead nodes
+     */
+    public void refreshStats(int tick, int s, int i, int r, int d){
+
+        susc_count.setText(String.format("Susceptible Nodes: %d", s));
+        inf_count.setText(String.format("Infected Nodes: %d", i));
+        rec_count.setText(String.format("Recovered Nodes: %d", r));
+        dead_count.setText(String.format("Dead Nodes: %d", d));
+        tick_count.setText(String.format("Current Tick: %d", tick));
+        eff_count.setText(String.format("Thread Efficiency: %.0f%%", graph.getEfficiency() * 100));
 
     }
 
@@ -480,12 +587,14 @@ public class GUI extends JFrame {
         rec_count.setText(String.format("Recovered Nodes: %d", graph.recovered));
         dead_count.setText(String.format("Dead Nodes: %d", graph.dead));
         tick_count.setText(String.format("Current Tick: %d", graph.tick));
+        eff_count.setText(String.format("Thread Efficiency: %.0f%%", graph.getEfficiency() * 100));
         
         susc_count.setFont(new Font("Ariel Black", Font.BOLD, 18));
         inf_count.setFont(new Font("Ariel Black", Font.BOLD, 18));
         rec_count.setFont(new Font("Ariel Black", Font.BOLD, 18));
         dead_count.setFont(new Font("Ariel Black", Font.BOLD, 18));
         tick_count.setFont(new Font("Ariel Black", Font.BOLD, 18));
+        eff_count.setFont(new Font("Ariel Black", Font.BOLD, 18));
 
         leftPanel.add(susc_count);
         leftPanel.add(inf_count);
@@ -493,6 +602,7 @@ public class GUI extends JFrame {
         leftPanel.add(dead_count);
         leftPanel.add(Box.createRigidArea(new Dimension(200, 0)));
         leftPanel.add(tick_count);
+        leftPanel.add(eff_count);
 
     }
     
@@ -508,14 +618,11 @@ public class GUI extends JFrame {
         random.addActionListener(new ActionListener(){
            
             public void actionPerformed(ActionEvent e2){
-                if(graph.tick > 0 || graph.infected != 0 || graph.size() == 0) return;
+                if(graph.tick > 0 || graph.infected != 0 || graph.size() == 0 || runner.isRunning()) return;
                 graph.infectRandom();
                 //update data containers
-                susceptible.add(graph.susceptible);
-                infected.add(graph.infected);
-                recovered.add(graph.recovered);
-                dead.add(graph.dead);
-                chart.updatePanel(susceptible, infected, recovered, dead);
+                addHistory(graph.tick, graph.susceptible, graph.infected, graph.recovered, graph.dead);
+                chart.update();
 
                 refreshStats();
 
@@ -528,14 +635,11 @@ public class GUI extends JFrame {
         degree.addActionListener(new ActionListener(){
 
             public void actionPerformed(ActionEvent e){
-                if(graph.tick > 0 || graph.infected != 0 || graph.size() == 0) return;
+                if(graph.tick > 0 || graph.infected != 0 || graph.size() == 0 || runner.isRunning()) return;
                 graph.infectDegree();
                 //update data containers
-                susceptible.add(graph.susceptible);
-                infected.add(graph.infected);
-                recovered.add(graph.recovered);
-                dead.add(graph.dead);
-                chart.updatePanel(susceptible, infected, recovered, dead);
+                addHistory(graph.tick, graph.susceptible, graph.infected, graph.recovered, graph.dead);
+                chart.update();
 
                 refreshStats();
 
@@ -547,14 +651,11 @@ public class GUI extends JFrame {
         JButton bfs = new JButton("BFS");
         bfs.addActionListener(new ActionListener(){
             public void actionPerformed(ActionEvent e){
-                if(graph.tick > 0 || graph.infected != 0 || graph.size() == 0) return;
+                if(graph.tick > 0 || graph.infected != 0 || graph.size() == 0 || runner.isRunning()) return;
                 graph.infectBFS();
                 // update data containers
-                susceptible.add(graph.susceptible);
-                infected.add(graph.infected);
-                recovered.add(graph.recovered);
-                dead.add(graph.dead);
-                chart.updatePanel(susceptible, infected, recovered, dead);
+                addHistory(graph.tick, graph.susceptible, graph.infected, graph.recovered, graph.dead);
+                chart.update();
 
                 refreshStats();
 
@@ -566,25 +667,82 @@ public class GUI extends JFrame {
         next.addActionListener(new ActionListener(){
 
             public void actionPerformed(ActionEvent actionE){
-                if(graph.size() == 0 || graph.infected == 0) return;
-                graph.nextTick();
-                // update data containers
-                susceptible.add(graph.susceptible);
-                infected.add(graph.infected);
-                recovered.add(graph.recovered);
-                dead.add(graph.dead);
-                chart.updatePanel(susceptible, infected, recovered, dead);
-
-                refreshStats();
-                
+                startRun(1);
             }
             
         });
 
+        // run a number of ticks
+        JButton runN = new JButton("Run N Ticks");
+        runN.addActionListener(new ActionListener(){
+
+            public void actionPerformed(ActionEvent e){
+                if(graph.size() == 0 || graph.infected == 0 || runner.isRunning()) return;
+                // get input
+                String input = JOptionPane.showInputDialog(null, "Enter the number of ticks");
+                if(input == null) return;
+                int ticks;
+                try{
+                    ticks = Integer.parseInt(input);
+                } catch (NumberFormatException nfe){
+                    JOptionPane.showMessageDialog(null, "The number of ticks must be an integer!", "Error", JOptionPane.ERROR_MESSAGE);
+                    return;
+                }
+                if(ticks < 1){
+                    JOptionPane.showMessageDialog(null, "Invalid number of ticks!", "Error", JOptionPane.ERROR_MESSAGE);
+                } else {
+                    startRun(ticks);
+                }
+            }
+
+        });
+
+        // run until no nodes are infected
+        JButton extinction = new JButton("Run to Extinction");
+        extinction.addActionListener(new ActionListener(){
+
+            public void actionPerformed(ActionEvent e){
+                startRun(0);
+            }
+
+        });
+
+        // pause or resume the run
+        pause = new JButton("Pause");
+        pause.addActionListener(new ActionListener(){
+
+            public void actionPerformed(ActionEvent e){
+                if(!runner.isRunning()) return;
+                if(runner.isPaused()){
+                    runner.resume();
+                    pause.setText("Pause");
+                } else {
+                    runner.pause();
+                    pause.setText("Resume");
+                }
+            }
+
+        });
+
+        // stop the run after the current tick
+        JButton cancel = new JButton("Cancel");
+        cancel.addActionListener(new ActionListener(){
+
+            public void actionPerformed(ActionEvent e){
+                runner.cancel();
+                pause.setText("Pause");
+            }
+
+        });
+
         bar.add(random);
         bar.add(degree);
         bar.add(bfs);
         bar.add(next);
+        bar.add(runN);
+        bar.add(extinction);
+        bar.add(pause);
+        bar.add(cancel);
         bar.setFloatable(false);
         bar.setRollover(true);
 
@@ -592,6 +750,68 @@ public class GUI extends JFrame {
 
     }
 
+    /**
+     * Starts running ticks in the background and refreshing the view at the frame rate
+     * @param ticks number of ticks to run, 0 to run until no nodes are infected
+     */
+    public void startRun(int ticks){
+
+        if(graph.size() == 0 || graph.infected == 0) return;
+        if(runner.start(ticks)){
+            frame_timer.start();
+        }
+
+    }
+
+    /**
+     * Function called by the frame timer. Adds the ticks finished since the last frame to the
+     * chart and the data containers, then refreshes the chart and the statistics once
+     */
+    public void drawFrame(){
+
+        // check before draining, so the last ticks of a finished run are not missed
+        boolean done = !runner.isRunning();
+        int ticks = runner.drain(frame);
+
+        for(int t = 0; t < ticks; t++){
+            int pos = t * SimulationRunner.ROW;
+            addHistory(frame.get(pos), frame.get(pos + 1), frame.get(pos + 2), frame.get(pos + 3), frame.get(pos + 4));
+        }
+        if(ticks > 0){
+            chart.update();
+            int pos = (ticks - 1) * SimulationRunner.ROW;
+            refreshStats(frame.get(pos), frame.get(pos + 1), frame.get(pos + 2), frame.get(pos + 3), frame.get(pos + 4));
+        }
+
+        if(done){
+            frame_timer.stop();
+            pause.setText("Pause");
+            RuntimeException error = runner.takeError();
+            if(error != null){
+                JOptionPane.showMessageDialog(null, "Error while running the simulation: " + error, "Error", JOptionPane.ERROR_MESSAGE);
+            }
+        }
+
+    }
+
+    /**
+     * Adds the node counts of a tick to the history plotted by the chart
+     * @param tick the tick
+     * @param s number of susceptible nodes
+     * @param i number of infected nodes
+     * @param r number of recovered nodes
+     * @param d number of dead nodes
+     */
+    public void addHistory(int tick, int s, int i, int r, int d){
+
+        row[0] = s;
+        row[1] = i;
+        row[2] = r;
+        row[3] = d;
+        history.add(tick, row);
+
+    }
+
     /**
      * function to make the View visible to the user
      */
@@ -1,7 +1,5 @@
 package main.java;
 import java.util.*;
-import java.util.Map.Entry;
-import java.util.concurrent.locks.ReentrantLock;
 import java.io.*;
 
 
@@ -27,6 +25,9 @@ import java.io.*;
  * Example: Adding the node "1" to the graph will have its name initialized as "1s", 
  * since it will start off as a susceptable node
  * 
+ * Every node name is given a dense integer id when it is first added. The simulation only
+ * works with these ids, names are only used to display the nodes
+ * 
  */
 
 public class Graph {
@@ -37,14 +38,81 @@ public class Graph {
 	public HashMap<Node, ArrayList<Edge> > g;
 	
 	/**
-	 * Container to hold all the nodes in the graph
+	 * Container to hold all the nodes in the graph, indexed by node id
 	 */
 	public ArrayList<Node> nodes;
 
 	/**
-	 * Container to hold all infected nodes
+	 * Name dictionary which maps every node name to its dense integer id.
+	 * Ids are handed out in the order names are first seen, starting from 0
+	 */
+	public HashMap<String, Integer> ids;
+
+	/**
+	 * Edges added since the graph was last frozen, stored as pairs of node ids.
+	 * Edge i goes from edge_src[i] to edge_dst[i]
+	 */
+	private int[] edge_src = new int[16];
+	private int[] edge_dst = new int[16];
+	private int edge_count = 0;
+
+	/**
+	 * Frozen CSR version of the graph which is read by the simulation.
+	 * Set to null whenever the graph is modified, until the next call to freeze
+	 */
+	public CSRGraph csr = null;
+
+	/**
+	 * csr with every edge reversed, giving the nodes with an edge to each node
+	 */
+	public CSRGraph reverse_csr = null;
+
+	/**
+	 * State of every node indexed by node id. Holds one of Node.SUSCEPTIBLE, Node.INFECTED,
+	 * Node.RECOVERED or Node.DEAD
+	 */
+	public byte[] state = new byte[0];
+
+	/**
+	 * State of every node at the end of the tick being computed. Written by the workers
+	 * during nextTick and swapped with the state array once the tick is done.
+	 * Holds the same values as the state array between ticks
+	 */
+	public byte[] next_state = new byte[0];
+
+	/**
+	 * First tick at which each node was infected, indexed by node id
+	 */
+	public int[] infected_at = new int[0];
+
+	/**
+	 * Number of susceptible neighbors of each node, indexed by node id. Kept up to date as nodes
+	 * are infected, so a node's neighbors do not have to be scanned to find it
 	 */
-	public ArrayList<Node> infectedNodes = new ArrayList<Node>();
+	public int[] susceptible_neighbors = new int[0];
+
+	/**
+	 * Number of edges which lead to a susceptible node, the total of susceptible_neighbors
+	 */
+	public long susceptible_edges = 0;
+
+	/**
+	 * Infected nodes filed under the tick at which their infection ends, so each tick only
+	 * visits the nodes which recover or die
+	 */
+	public TimingWheel recoveries = new TimingWheel();
+
+	/**
+	 * Ids of all infected nodes, stored in the first frontier_size entries of the array.
+	 * Rebuilt at the end of every tick
+	 */
+	public int[] frontier = new int[16];
+	public int frontier_size = 0;
+
+	/**
+	 * Array the next frontier is built into during a tick. Swapped with frontier once the tick is done
+	 */
+	public int[] next_frontier = new int[16];
 
 
 
@@ -86,6 +154,12 @@ public class Graph {
 	 */
 	public double lambda = 1.25;
 
+	/**
+	 * How the tick engine decides how many neighbors each infected node infects, either "quota"
+	 * for an even share of lambda per node or "binomial" for an independent chance per edge
+	 */
+	public String transmission = "quota";
+
 	/**
 	 * Counter for discrete unit of time
 	 */
@@ -96,6 +170,52 @@ public class Graph {
 	 */
 	public int num_threads = 1;
 
+	/**
+	 * Engine used by nextTick, either "tick" for the tick by tick workers or "event" for the
+	 * continuous time EventEngine. Should only be changed before the first tick
+	 */
+	public String engine = "tick";
+
+	/**
+	 * Master seed of the random streams used for seeding and by the workers. Every random
+	 * decision draws from a RandomStream picked by this seed, the tick and the node, so two runs
+	 * with the same seed, parameters and graph give the same results whatever num_threads is
+	 */
+	public long seed = new Random().nextLong();
+
+	/**
+	 * Phase times, load balance and infection counts of the ticks run so far
+	 */
+	public TickStats stats = new TickStats();
+
+	/**
+	 * Size, edge count and throughput of the last call to buildGraph
+	 */
+	public String load_report = "";
+
+	/**
+	 * Whether buildGraph saves a binary snapshot next to each text file it loads, as the file
+	 * name with GraphSnapshot.EXTENSION added. Off by default, so loading a file does not write
+	 * anything next to it
+	 */
+	public boolean write_snapshot = false;
+
+	/**
+	 * Pool of worker threads which run the ticks, created by the first call to nextTick
+	 */
+	private TickExecutor executor = null;
+
+	/**
+	 * Event driven engine used when engine is "event", created by the first call to nextTick
+	 */
+	private EventEngine event_engine = null;
+
+	/**
+	 * Set on replicates, whose topology is shared with the graph they were made from and
+	 * must not be modified
+	 */
+	private boolean read_only = false;
+
 
 	/**
 	 * Graph constructor which initializes the datastructure
@@ -104,7 +224,7 @@ public class Graph {
 		
 		this.g = new HashMap<Node, ArrayList<Edge> >();
 		this.nodes = new ArrayList<Node>();
-		this.infectedNodes = new ArrayList<Node>();
+		this.ids = new HashMap<String, Integer>();
 		
 	}
 	
@@ -113,7 +233,7 @@ public class Graph {
 	 * @return number of nodes in the graph
 	 */
 	public int size() {
-		return this.g.size();
+		return this.nodes.size();
 	}
 	
 	/**
@@ -154,28 +274,48 @@ public class Graph {
 	 */
 	public ArrayList<Node> getNodes(){
 		// return node data as arraylist
-		return new ArrayList<Node>(g.keySet());
+		return new ArrayList<Node>(nodes);
 	}
 	
 
 	
+	/**
+	 * getter for all infected nodes
+	 * @return the infected nodes as a list
+	 */
+	public ArrayList<Node> getInfectedNodes(){
+		ArrayList<Node> infectedNodes = new ArrayList<Node>(frontier_size);
+		for(int i = 0; i < frontier_size; i++){
+			infectedNodes.add(nodes.get(frontier[i]));
+		}
+		return infectedNodes;
+	}
+	
 	/**
 	 * getter for all adjacent nodes
 	 * @param node the node whose neighbors are needed
 	 * @return all neighboring nodes as a list
 	 */
 	public ArrayList<Edge> getChildren(Node node){
-		if(!g.containsKey(node)) {
+		if(!ids.containsKey(node.name)) {
 			return new ArrayList<Edge>();
 		}
 		
 		ArrayList<Edge> children = new ArrayList<Edge>();
-		ArrayList<Edge> t = g.get(node);
 		
-		//deep copy list of children and return the list
-		for(Edge e : t) {
-			Edge new_edge = new Edge(e.getDest(), e.getLabel());
-			children.add(new_edge);
+		if(g.containsKey(node)) {
+			//deep copy list of children and return the list
+			for(Edge e : g.get(node)) {
+				Edge new_edge = new Edge(e.getDest(), e.getLabel());
+				children.add(new_edge);
+			}
+		} else {
+			// node was loaded from a file, read its edges from the CSR graph
+			this.freeze();
+			int u = ids.get(node.name);
+			for(int j = csr.offsets[u]; j < csr.offsets[u + 1]; j++) {
+				children.add(new Edge(nodes.get(csr.neighbors[j]), ""));
+			}
 		}
 		
 		// sort children and return 
@@ -193,17 +333,88 @@ public class Graph {
 	 */
 	public int getChildrenCount(Node nodeData) {
 		// return 0 if the node DNE
-		if(!g.containsKey(nodeData)) {
+		Integer id = ids.get(nodeData.name);
+		if(id == null) {
 			return 0;
 		}
 		
-		for(Map.Entry<Node, ArrayList<Edge> >  entry : g.entrySet()) {
-			if(entry.getKey().equals(nodeData)) {
-				return entry.getValue().size();
-			}
+		this.freeze();
+		return csr.degree(id);
+		
+	}
+	
+	/**
+	 * Looks up the id of a node name, adding a new node to the graph if the name is not known yet
+	 * @param name name of the node
+	 * @return dense integer id of the node
+	 */
+	public int getId(String name) {
+		
+		Integer id = ids.get(name);
+		if(id == null) {
+			id = register(new Node(name));
+		}
+		return id;
+		
+	}
+	
+	/**
+	 * Gives a new node the next free id and adds it to the list of nodes
+	 * @param nodeData node which is not yet in the graph
+	 * @return id assigned to the node
+	 */
+	private int register(Node nodeData) {
+		
+		int id = nodes.size();
+		nodeData.id = id;
+		nodeData.graph = this;
+		ids.put(nodeData.name, id);
+		thaw();
+		nodes.add(nodeData);
+		susceptible++;
+		return id;
+		
+	}
+	
+	/**
+	 * Adds a batch of edges to the list used to build the CSR graph. The ends of each edge
+	 * are given as local ids which are turned into node ids through a lookup table
+	 * @param src source of each edge, as a local id
+	 * @param dst destination of each edge, as a local id
+	 * @param remap node id of each local id
+	 */
+	void addEdges(IntList src, IntList dst, int[] remap) {
+		
+		thaw();
+		int count = src.size();
+		if(edge_count + count > edge_src.length) {
+			int capacity = Math.max(edge_count + count, edge_src.length * 2);
+			edge_src = Arrays.copyOf(edge_src, capacity);
+			edge_dst = Arrays.copyOf(edge_dst, capacity);
+		}
+		for(int i = 0; i < count; i++) {
+			edge_src[edge_count] = remap[src.get(i)];
+			edge_dst[edge_count] = remap[dst.get(i)];
+			edge_count++;
 		}
 		
-		return 0;
+	}
+	
+	/**
+	 * Adds an edge between two node ids to the list used to build the CSR graph
+	 * @param u source node id
+	 * @param v destination node id
+	 */
+	private void addEdge(int u, int v) {
+		
+		thaw();
+		if(edge_count == edge_src.length) {
+			edge_src = Arrays.copyOf(edge_src, edge_count * 2);
+			edge_dst = Arrays.copyOf(edge_dst, edge_count * 2);
+		}
+		edge_src[edge_count] = u;
+		edge_dst[edge_count] = v;
+		edge_count++;
 		
 	}
 	
@@ -213,14 +424,20 @@ public class Graph {
 	 */
 	public void addNode(Node nodeData) {
 		
+		checkWritable();
 		// if the node is already present, do nothing
 		if(g.containsKey(nodeData)) {
 			return;
+		}
+		
+		// reuse the existing node if the name was loaded from a file
+		Integer id = ids.get(nodeData.name);
+		if(id == null) {
+			register(nodeData);
 		} else {
-			g.put(nodeData, new ArrayList<Edge >());
-			nodes.add(nodeData);
-			susceptible++;
+			nodeData = nodes.get(id);
 		}
+		g.put(nodeData, new ArrayList<Edge >());
 
 		return;
 	}
@@ -233,30 +450,191 @@ public class Graph {
 	 */
 	public void addEdge(Node parentNode, Node childNode, String edgeLabel) {
 		
+		checkWritable();
 		// if parent DNE, add it
-		if(!(g.containsKey(parentNode))) {
-
-			g.put(parentNode, new ArrayList<Edge>());
-			nodes.add(parentNode);
-			susceptible++;
-		}
+		this.addNode(parentNode);
 
 		// if child DNE, add it
-		if(!(g.containsKey(childNode))){
+		this.addNode(childNode);
 
-			g.put(childNode, new ArrayList<Edge>());
-			nodes.add(childNode);
-			susceptible++;
-		}
+		// use the nodes already stored in the graph
+		Node parent = nodes.get(ids.get(parentNode.name));
+		Node child = nodes.get(ids.get(childNode.name));
 
 		// create new Edge object
-		Edge e = new Edge(childNode, edgeLabel);
+		Edge e = new Edge(child, edgeLabel);
 		
 		//find get parent node and add edge
-		g.get(parentNode).add(e);
+		g.get(parent).add(e);
+		this.addEdge(parent.id, child.id);
 		
 	}
 
+	/**
+	 * Method to build the CSR version of the graph from the adjacency list.
+	 * Does nothing if the graph has not changed since the last call.
+	 * The edge list is released once the CSR graph is built, since the CSR graph holds the same edges
+	 */
+	public void freeze(){
+
+		if(csr != null){
+			return;
+		}
+
+		setTopology(CSRGraph.build(nodes.size(), edge_src, edge_dst, edge_count));
+		edge_src = new int[16];
+		edge_dst = new int[16];
+		edge_count = 0;
+
+	}
+
+	/**
+	 * Makes sure the topology of the graph can be modified
+	 * @throws IllegalStateException if the graph is a replicate
+	 */
+	private void checkWritable(){
+
+		if(read_only){
+			throw new IllegalStateException("The topology of a replicate cannot be modified");
+		}
+
+	}
+
+	/**
+	 * Creates a new simulation on the same topology as this graph. The replicate shares the
+	 * CSR graph, the name dictionary and the nodes with this graph, none of which may change
+	 * afterwards. It gets its own state arrays, with every node susceptible, and a copy of the
+	 * simulation parameters. Node views in the shared list still read the state of this graph.
+	 * Replicates run on a single thread by default and keep the same seed, so replicates which
+	 * should differ need a seed of their own
+	 * @return the new graph
+	 */
+	public Graph replicate(){
+
+		this.freeze();
+
+		Graph copy = new Graph();
+		copy.g = g;
+		copy.nodes = nodes;
+		copy.ids = ids;
+		copy.read_only = true;
+		copy.susceptible = nodes.size();
+		copy.setTopology(csr);
+
+		copy.n_infected = n_infected;
+		copy.s_infected = s_infected;
+		copy.k_infected = k_infected;
+		copy.d = d;
+		copy.t = t;
+		copy.lambda = lambda;
+		copy.seed = seed;
+		copy.num_threads = 1;
+		copy.engine = engine;
+		copy.transmission = transmission;
+
+		return copy;
+
+	}
+
+	/**
+	 * Called before the graph is modified. Drops the CSR graph after copying its edges
+	 * back into the edge list, so they are part of the next CSR graph
+	 */
+	private void thaw(){
+
+		checkWritable();
+		if(csr == null){
+			return;
+		}
+
+		int m = csr.edgeCount();
+		edge_src = new int[Math.max(16, m * 2)];
+		edge_dst = new int[Math.max(16, m * 2)];
+		edge_count = 0;
+		for(int u = 0; u < csr.size(); u++){
+			for(int j = csr.offsets[u]; j < csr.offsets[u + 1]; j++){
+				edge_src[edge_count] = u;
+				edge_dst[edge_count] = csr.neighbors[j];
+				edge_count++;
+			}
+		}
+		csr = null;
+
+	}
+
+	/**
+	 * Sets the CSR graph read by the simulation, used once a graph has been built or read from a snapshot
+	 * @param frozen CSR graph covering every node in the list of nodes
+	 */
+	void setTopology(CSRGraph frozen){
+
+		csr = frozen;
+		reverse_csr = frozen.reverse();
+
+		// grow the state arrays to cover any new nodes, which start off susceptible
+		if(state.length < nodes.size()){
+			state = Arrays.copyOf(state, nodes.size());
+			next_state = Arrays.copyOf(next_state, nodes.size());
+			infected_at = Arrays.copyOf(infected_at, nodes.size());
+			susceptible_neighbors = new int[nodes.size()];
+		}
+		countSusceptibleNeighbors();
+
+	}
+
+	/**
+	 * Counts the susceptible neighbors of every node from scratch
+	 */
+	private void countSusceptibleNeighbors(){
+
+		susceptible_edges = 0;
+		for(int u = 0; u < csr.size(); u++){
+			int count = 0;
+			for(int j = csr.offsets[u]; j < csr.offsets[u + 1]; j++){
+				if(state[csr.neighbors[j]] == Node.SUSCEPTIBLE){
+					count++;
+				}
+			}
+			susceptible_neighbors[u] = count;
+			susceptible_edges += count;
+		}
+
+	}
+
+	/**
+	 * Updates the susceptible neighbor counts after a node stopped being susceptible.
+	 * Must not run at the same time as another call or a tick
+	 * @param v id of the node
+	 */
+	void leftSusceptible(int v){
+
+		for(int j = reverse_csr.offsets[v]; j < reverse_csr.offsets[v + 1]; j++){
+			susceptible_neighbors[reverse_csr.neighbors[j]]--;
+		}
+		susceptible_edges -= reverse_csr.degree(v);
+
+	}
+
+	/**
+	 * Marks a node as infected outside of a tick, used when seeding the infection
+	 * @param u id of the node to infect
+	 */
+	private void infect(int u){
+
+		state[u] = Node.INFECTED;
+		next_state[u] = Node.INFECTED;
+		infected_at[u] = tick;
+		recoveries.add(u, tick + t - 1);
+		if(frontier_size == frontier.length){
+			frontier = Arrays.copyOf(frontier, frontier_size * 2);
+		}
+		frontier[frontier_size++] = u;
+		leftSusceptible(u);
+		susceptible--;
+		infected++;
+
+	}
+
 	/**
 	 * BFS implementation for the graph that represents the simulations. Will traverse until k nodes
 	 * are visited or the whole graph is. Will mark nodes as infected alnog the way
@@ -266,54 +644,39 @@ public class Graph {
 	public void BFS(Node node1, int k) {
 		
 		// INITIALIZE BFS
-		Node start = node1;
+		this.freeze();
+		int start = ids.get(node1.name);
 		int ctr = 0;
 		
+		// queue is an int array, since every node is queued at most once
+		int[] queue = new int[csr.size()];
+		int head = 0;
+		int tail = 0;
+		boolean[] visited = new boolean[csr.size()];
 		
-		// queue will be a linkedlist
-		LinkedList<Node> queue = new LinkedList<Node>();
-		// visited "array" will be a map from visited nodes to paths
-		HashMap<Node, ArrayList<Edge> > visited = new HashMap<Node, ArrayList<Edge> >();
-		
-		// queue start and add to the map
-
-		queue.addLast(start);
-		visited.put(start, new ArrayList<Edge>());
+		// queue start and mark as visited
+		queue[tail++] = start;
+		visited[start] = true;
 		
 		//while loop for BFS
-		while(queue.size() > 0) {
+		while(head < tail) {
 			if(ctr == k){
 				break;
 			}
 			
 			// dequeue next node 
 			// mark as infected
-			Node next_node = queue.removeFirst();
-			
-			for(Node n : g.keySet()){
-				if(n.name.equals(next_node.name)){
-					infectedNodes.add(n);
-					n.status = "i";
-					susceptible--;
-					infected++;
-				}
+			int u = queue[head++];
+			if(state[u] == Node.SUSCEPTIBLE){
+				infect(u);
 			}
 
-			// get all edges e = <n,m>
-			ArrayList<Edge> edges = this.getChildren(next_node); // this should be sorted
-			for (Edge e : edges) {
-				if(!visited.containsKey(e.getDest())) { // if dest node is unvisited
-					//get path p
-					ArrayList<Edge> p = visited.get(next_node);
-					//build p' (new path)
-					ArrayList<Edge> new_path = new ArrayList<Edge>();
-					for(Edge edge_path : p) {
-						new_path.add(new Edge(edge_path.getDest(), edge_path.getLabel()));
-					}
-					new_path.add(e); //add new edge to new_path
-					// add to map and queue the new node
-					visited.put(e.getDest(), new_path);
-					queue.addLast(e.getDest());
+			// queue all unvisited neighbors
+			for(int j = csr.offsets[u]; j < csr.offsets[u + 1]; j++) {
+				int v = csr.neighbors[j];
+				if(!visited[v]) {
+					visited[v] = true;
+					queue[tail++] = v;
 				}
 			}
 
@@ -327,26 +690,19 @@ public class Graph {
 	 * Function to randomly infect up to n_infected nodes
 	 */
 	public void infectRandom(){
-		Random rand = new Random();
+		this.freeze();
+		RandomStream rand = new RandomStream(RandomStream.stream(seed, RandomStream.SEED, tick, 0));
 		int ctr = 0;
-		while(ctr < this.n_infected){
-
-			int index = rand.nextInt(nodes.size());
-			// get node from list
-			Node n = nodes.get(index);
-			// find node in graph
-			for(Node node : g.keySet()){
-				// if we find the node and it is uninfected, infect it
-				if(node.name.equals(n.name) && node.status.equals("s") ){
-					node.status = "i";
-					n.status = "i";
-					infectedNodes.add(n);
-					ctr ++;
-					susceptible--;
-					infected++;
-				}
-				// in any other case, do nothing
+		// stop early if every node is already infected
+		while(ctr < this.n_infected && susceptible > 0){
+
+			int index = rand.nextInt(csr.size());
+			// if the node is uninfected, infect it
+			if(state[index] == Node.SUSCEPTIBLE){
+				infect(index);
+				ctr ++;
 			}
+			// in any other case, do nothing
 		}
 
 	}
@@ -356,12 +712,10 @@ public class Graph {
 	 */
 	public void infectDegree(){
 
-		for(Node node : g.keySet()){
-			if(g.get(node).size() > s_infected){
-				node.status = "i";
-				infectedNodes.add(node);
-				susceptible--;
-				infected++;
+		this.freeze();
+		for(int u = 0; u < csr.size(); u++){
+			if(csr.degree(u) > s_infected && state[u] == Node.SUSCEPTIBLE){
+				infect(u);
 			}
 		}
 
@@ -373,7 +727,7 @@ public class Graph {
 	public void infectBFS(){
 		
 		// get random starting position
-		Random rand = new Random();
+		RandomStream rand = new RandomStream(RandomStream.stream(seed, RandomStream.SEED, tick, 1));
 		int index = rand.nextInt(nodes.size());
 		Node start = nodes.get(index);
 
@@ -383,63 +737,55 @@ public class Graph {
 	}
 
 	/**
-	 * Method to create multiple threads and update the graph to the state of the 
-	 * next tick
+	 * Seeds the infection with one of the three strategies
+	 * @param strategy "random" for infectRandom, "degree" for infectDegree or "bfs" for infectBFS
 	 */
-	public void nextTick(){
-
-		SimThread[] threadlist = new SimThread[num_threads];
-		ReentrantLock lock = new ReentrantLock();
-
-		// initialize all thread objects
-		for(int i = 0; i < num_threads - 1; i++){
-
-			int start = (infectedNodes.size() / num_threads) * i;
-			int end = (infectedNodes.size() / num_threads) * (i+1);
-			SimThread t = new SimThread(this, start, end, lock);
-			threadlist[i] = t;
+	public void seedInfection(String strategy){
 
+		if(strategy.equals("random")){
+			infectRandom();
+		} else if(strategy.equals("degree")){
+			infectDegree();
+		} else if(strategy.equals("bfs")){
+			infectBFS();
+		} else {
+			throw new IllegalArgumentException("Unknown seeding strategy: " + strategy);
 		}
 
-		int last_start = (infectedNodes.size() / num_threads) * (num_threads-1);
-		int last_end = infectedNodes.size();
-		SimThread tlast = new SimThread(this, last_start, last_end, lock);
-		threadlist[num_threads-1] = tlast;
-
-		// start all threads
-		for(int i = 0;i < num_threads; i++){
-
-			threadlist[i].start();
+	}
 
-		}
+	/**
+	 * Method to run the worker threads and update the graph to the state of the 
+	 * next tick. The workers are created on the first tick and reused afterwards
+	 */
+	public void nextTick(){
 
-		// join threads 
-		for(int i = 0;i < num_threads; i++){
+		this.freeze();
 
-			try{
-				threadlist[i].join();
-			} catch (InterruptedException e){
-				System.err.println("ERROR: THREAD " + i + " INTERRUPTED!");
-			}
-			
-		}
-		// remove all nulls
-		ListIterator<Node> iter = infectedNodes.listIterator();
-		while(iter.hasNext()){
-			if(iter.next() == null){
-				iter.remove();
+		if(engine.equals("event")){
+			if(event_engine == null){
+				event_engine = new EventEngine(this);
 			}
+			event_engine.advance(tick + 1);
+			tick++;
+			return;
+		} else if(!engine.equals("tick")){
+			throw new IllegalStateException("Unknown engine: " + engine);
+		} else if(!transmission.equals("quota") && !transmission.equals("binomial")){
+			throw new IllegalStateException("Unknown transmission: " + transmission);
 		}
 
-		// remove nodes that are no longer infected
-		for(int i = infectedNodes.size() - 1; i >= 0; i--){
-			
-			if(! ((infectedNodes.get(i).status).equals("i")) ) {
-				infectedNodes.remove(i);
+		// create the workers once per simulation, or again if the thread count changed
+		if(executor == null || executor.size() != num_threads){
+			if(executor != null){
+				executor.shutdown();
 			}
-			
+			executor = new TickExecutor(this, num_threads);
 		}
 
+		// the executor also rebuilds the frontier, leaving only the infected nodes
+		executor.runTick();
+
 		tick++;
 		
 	}
@@ -447,30 +793,91 @@ public class Graph {
 
 
 	/**
-	 * Method to build the grid from a given input text file, which is stored as an adjacency list
+	 * scaling efficiency getter
+	 * @return how evenly the work of the last tick was spread over the threads, between 0 and 1
+	 */
+	public double getEfficiency(){
+		if(executor == null){
+			return 1.0;
+		}
+		return executor.getEfficiency();
+	}
+
+	/**
+	 * Puts every node back in the susceptible state and the tick back to 0, so a new simulation
+	 * can run on the same topology. The parameters and the worker threads are kept
+	 */
+	public void reset(){
+
+		this.freeze();
+		Arrays.fill(state, Node.SUSCEPTIBLE);
+		Arrays.fill(next_state, Node.SUSCEPTIBLE);
+		Arrays.fill(infected_at, 0);
+		recoveries.clear(0);
+		countSusceptibleNeighbors();
+		frontier_size = 0;
+		susceptible = nodes.size();
+		infected = 0;
+		recovered = 0;
+		dead = 0;
+		tick = 0;
+		event_engine = null;
+
+	}
+
+	/**
+	 * Method to stop the worker threads used by nextTick. Should be called once the
+	 * simulation is over. A later call to nextTick will start new workers
+	 */
+	public void shutdown(){
+
+		if(executor != null){
+			executor.shutdown();
+			executor = null;
+		}
+
+	}
+
+	/**
+	 * Method to build the grid from a given input text file, which is stored as an adjacency list.
+	 * The file may also be a binary snapshot written by GraphSnapshot, which is detected automatically
 	 * @param path the path of the text file to read from 
 	 * @throws IOException exception thrown on IO error when reading/closing the file
 	 */
 	public void buildGraph(String path) throws IOException {
 
-		BufferedReader inFile = null;
-		try{
-
-			inFile = new BufferedReader(new FileReader(path));
-			String line;
-			while( (line = inFile.readLine()) != null ) {
-				// split a line based on some valid separators 
-				String[] data = line.split("[ ,;|]+");
-				// first element is the node, and subsequent elements are adjacent nodes
-				for(int i = 1; i < data.length; i++){
-					this.addEdge(new Node(data[0]), new Node(data[i]), "");
+		// read binary snapshots directly, and use a snapshot of a text file if it was made from
+		// the file as it is now. A snapshot which turns out to be corrupt is ignored
+		File source = new File(path);
+		File snapshot = new File(path + GraphSnapshot.EXTENSION);
+		if(GraphSnapshot.isSnapshot(path)){
+			load_report = GraphSnapshot.read(this, path);
+			return;
+		} else if(GraphSnapshot.isSnapshotOf(snapshot.getPath(), source)){
+			try{
+				load_report = GraphSnapshot.read(this, snapshot.getPath());
+				return;
+			} catch (IOException e){
+				if(size() != 0){
+					throw e;
 				}
-
+				System.err.println("Ignoring graph snapshot " + snapshot.getPath() + ": " + e.getMessage());
 			}
+		}
 
-		} finally{
-			if (inFile != null){
-				inFile.close();
+		GraphLoader loader = new GraphLoader(this);
+		loader.load(path);
+		load_report = loader.report();
+
+		// loading is done, build the CSR graph used by the simulation
+		this.freeze();
+
+		// save a snapshot so the next load of this file is faster
+		if(write_snapshot){
+			try{
+				GraphSnapshot.write(this, snapshot.getPath(), source);
+			} catch (IOException e){
+				System.err.println("Could not write graph snapshot " + snapshot.getPath() + ": " + e.getMessage());
 			}
 		}
 
@@ -480,12 +887,14 @@ public class Graph {
 	 * Print method to output the graph to the terminal as an adjacency list
 	 */
 	public void print() {
-		for(Entry<Node, ArrayList<Edge> > entry : g.entrySet()) {
-			entry.getKey().print();
+		this.freeze();
+		for(int u = 0; u < csr.size(); u++) {
+			nodes.get(u).print();
 			System.out.print("=[");
-			for (Edge e : entry.getValue()) {
-				e.print();
-				
+			for(int j = csr.offsets[u]; j < csr.offsets[u + 1]; j++) {
+				System.out.print("(");
+				nodes.get(csr.neighbors[j]).print();
+				System.out.print(")");
 			}
 			System.out.print("]\n");
 		}
@@ -498,7 +907,7 @@ public class Graph {
 
 		for(Node n : this.nodes){
 			n.print();
-			System.out.print("-" + n.status);
+			System.out.print("-" + n.status());
 			System.out.print(" ");
 		}
 		System.out.println();
@@ -510,10 +919,10 @@ public class Graph {
 	 */
 	public void printInfected(){
 
-		for(Node n : infectedNodes){
+		for(Node n : getInfectedNodes()){
 
 			n.print();
-			System.out.print("-" + n.status);
+			System.out.print("-" + n.status());
 			System.out.print(" ");
 			
 		}
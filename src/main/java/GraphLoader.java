@@ -0,0 +1,351 @@
+package main.java;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * @author Aaron Zachariah
+ * Loader for graphs stored as text adjacency lists. Each line holds a node name followed by the
+ * names of its neighbors, separated by any run of ' ', ',', ';' or '|'.
+ *
+ * The file is memory mapped and split into chunks which end on line boundaries. Every chunk is
+ * parsed on its own thread into a local name dictionary and a list of edges between local ids.
+ * The chunks are then merged into the Graph in file order, so nodes get the same ids as they
+ * would if the file was read line by line.
+ */
+public class GraphLoader {
+
+    /**
+     * Graph the edges are added to
+     */
+    private final Graph graph;
+
+    /**
+     * Smallest amount of the file given to a single chunk, so small files are not split up
+     */
+    private static final long MIN_CHUNK = 1 << 20;
+
+    /**
+     * Largest amount of the file given to a single chunk, since a single mapping is limited to 2GB
+     */
+    private static final long MAX_CHUNK = 1 << 30;
+
+    /**
+     * Statistics of the last load
+     */
+    private long bytes = 0;
+    private long edges = 0;
+    private double seconds = 0.0;
+
+    /**
+     * Result of parsing one chunk of the file
+     */
+    private static class Chunk {
+
+        /**
+         * Names in the order they were first seen in the chunk. Local id i is names.get(i)
+         */
+        ArrayList<String> names = new ArrayList<String>();
+
+        /**
+         * Map from names to local ids
+         */
+        HashMap<String, Integer> ids = new HashMap<String, Integer>();
+
+        /**
+         * Edges between local ids
+         */
+        IntList src = new IntList();
+        IntList dst = new IntList();
+
+        /**
+         * Looks up the local id of a name, adding it if it has not been seen in the chunk
+         * @param name name of the node
+         * @return local id of the node
+         */
+        int getId(String name){
+            Integer id = ids.get(name);
+            if(id == null){
+                id = names.size();
+                ids.put(name, id);
+                names.add(name);
+            }
+            return id;
+        }
+
+    }
+
+    /**
+     * GraphLoader constructor
+     * @param graph graph the loaded edges are added to
+     */
+    public GraphLoader(Graph graph){
+        this.graph = graph;
+    }
+
+    /**
+     * Method to load a text adjacency list into the graph
+     * @param path the path of the text file to read from
+     * @throws IOException exception thrown on IO error when reading the file
+     */
+    public void load(String path) throws IOException {
+
+        load(path, 0);
+
+    }
+
+    /**
+     * Method to load a text adjacency list into the graph, split into a given number of chunks.
+     * The graph is the same whatever the number of chunks
+     * @param path the path of the text file to read from
+     * @param chunk_count number of chunks to split the file into, or 0 to pick it from the file
+     *                    size and the number of processors
+     * @throws IOException exception thrown on IO error when reading the file
+     */
+    public void load(String path, int chunk_count) throws IOException {
+
+        long start = System.nanoTime();
+
+        RandomAccessFile file = new RandomAccessFile(path, "r");
+        try{
+
+            FileChannel channel = file.getChannel();
+            long size = channel.size();
+            long[] bounds = split(channel, size, chunk_count);
+            int chunks = bounds.length - 1;
+
+            // parse every chunk on its own thread
+            ExecutorService pool = Executors.newFixedThreadPool(Math.max(1, Math.min(chunks, Runtime.getRuntime().availableProcessors())));
+            ArrayList<Future<Chunk>> results = new ArrayList<Future<Chunk>>();
+            try{
+                for(int c = 0; c < chunks; c++){
+                    final MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, bounds[c], bounds[c+1] - bounds[c]);
+                    results.add(pool.submit(new Callable<Chunk>(){
+                        public Chunk call(){
+                            return parse(buffer);
+                        }
+                    }));
+                }
+
+                // merge the chunks in file order
+                edges = 0;
+                for(Future<Chunk> result : results){
+                    Chunk chunk = result.get();
+                    int[] remap = new int[chunk.names.size()];
+                    for(int i = 0; i < remap.length; i++){
+                        remap[i] = graph.getId(chunk.names.get(i));
+                    }
+                    graph.addEdges(chunk.src, chunk.dst, remap);
+                    edges += chunk.src.size();
+                }
+            } catch (InterruptedException e){
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while loading " + path, e);
+            } catch (ExecutionException e){
+                if(e.getCause() instanceof RuntimeException){
+                    throw (RuntimeException) e.getCause();
+                }
+                throw new IOException("Error while loading " + path, e.getCause());
+            } finally{
+                pool.shutdownNow();
+            }
+
+            bytes = size;
+
+        } finally{
+            file.close();
+        }
+
+        seconds = (System.nanoTime() - start) / 1e9;
+
+    }
+
+    /**
+     * Splits the file into chunks which start at the beginning of a line
+     * @param channel channel of the file
+     * @param size size of the file in bytes
+     * @param chunk_count number of chunks to aim for, or 0 to pick it from the size
+     * @return start of every chunk, followed by the size of the file
+     * @throws IOException exception thrown on IO error when reading the file
+     */
+    private long[] split(FileChannel channel, long size, int chunk_count) throws IOException {
+
+        long chunk_size;
+        if(chunk_count > 0){
+            chunk_size = Math.max(1, (size + chunk_count - 1) / chunk_count);
+        } else {
+            int threads = Runtime.getRuntime().availableProcessors();
+            chunk_size = Math.max(MIN_CHUNK, (size + threads - 1) / threads);
+        }
+        chunk_size = Math.min(chunk_size, MAX_CHUNK);
+        int chunks = (int) Math.max(1, (size + chunk_size - 1) / chunk_size);
+
+        long[] bounds = new long[chunks + 1];
+        ByteBuffer block = ByteBuffer.allocate(1 << 16);
+        for(int c = 1; c < chunks; c++){
+            // move the boundary forward to just after the next line break
+            long pos = Math.max(c * chunk_size, bounds[c-1]);
+            boolean found = false;
+            while(!found && pos < size){
+                block.clear();
+                int read = channel.read(block, pos);
+                if(read <= 0){
+                    break;
+                }
+                for(int i = 0; i < read; i++){
+                    byte b = block.get(i);
+                    if(b == '\n' || b == '\r'){
+                        pos += i + 1;
+                        found = true;
+                        break;
+                    }
+                }
+                if(!found){
+                    pos += read;
+                }
+            }
+            bounds[c] = Math.min(pos, size);
+        }
+        bounds[chunks] = size;
+
+        return bounds;
+
+    }
+
+    /**
+     * Parses one chunk of the file. Lines are split the same way as
+     * String.split("[ ,;|]+"), including the empty first name of a line which starts with a separator
+     * @param buffer the chunk, starting at the beginning of a line
+     * @return names and edges found in the chunk
+     */
+    private static Chunk parse(ByteBuffer buffer){
+
+        Chunk chunk = new Chunk();
+        byte[] token = new byte[64];
+        int length = 0;
+        boolean in_token = false;
+
+        // position of the current token in its line, and the first token of the line
+        int position = 0;
+        String first = null;
+        int u = -1;
+        boolean line_start = true;
+
+        int limit = buffer.limit();
+        for(int i = 0; i <= limit; i++){
+
+            byte b = i < limit ? buffer.get(i) : (byte) '\n';
+            boolean end_of_line = b == '\n' || b == '\r';
+            boolean separator = b == ' ' || b == ',' || b == ';' || b == '|';
+
+            if(end_of_line || separator){
+
+                String name = null;
+                if(in_token){
+                    name = new String(token, 0, length, StandardCharsets.UTF_8);
+                } else if(line_start && separator){
+                    // a line starting with a separator has an empty first name
+                    name = "";
+                }
+
+                if(name != null){
+                    if(position == 0){
+                        first = name;
+                    } else {
+                        // the first name is only added once the line has a neighbor
+                        if(position == 1){
+                            u = chunk.getId(first);
+                        }
+                        chunk.src.add(u);
+                        chunk.dst.add(chunk.getId(name));
+                    }
+                    position++;
+                }
+
+                in_token = false;
+                length = 0;
+                line_start = false;
+                if(end_of_line){
+                    position = 0;
+                    line_start = true;
+                }
+
+            } else {
+
+                if(length == token.length){
+                    token = Arrays.copyOf(token, length * 2);
+                }
+                token[length++] = b;
+                in_token = true;
+                line_start = false;
+
+            }
+
+        }
+
+        return chunk;
+
+    }
+
+    /**
+     * size getter
+     * @return number of bytes read by the last load
+     */
+    public long getBytes(){
+        return bytes;
+    }
+
+    /**
+     * edge count getter
+     * @return number of edges read by the last load
+     */
+    public long getEdges(){
+        return edges;
+    }
+
+    /**
+     * time getter
+     * @return wall clock time of the last load in seconds
+     */
+    public double getSeconds(){
+        return seconds;
+    }
+
+    /**
+     * Method to describe the throughput of the last load
+     * @return a single line with the size, edge count, time and throughput of the load
+     */
+    public String report(){
+        return report("Loaded", bytes, edges, seconds);
+    }
+
+    /**
+     * Method to describe the throughput of a load
+     * @param what word the line starts with
+     * @param bytes number of bytes read
+     * @param edges number of edges read
+     * @param seconds wall clock time of the load in seconds
+     * @return a single line with the size, edge count, time and throughput of the load
+     */
+    static String report(String what, long bytes, long edges, double seconds){
+
+        double mb = bytes / (1024.0 * 1024.0);
+        double time = Math.max(seconds, 1e-9);
+        return String.format("%s %.1f MB, %d edges in %.3f s (%.1f MB/s, %.0f edges/s)",
+            what, mb, edges, seconds, mb / time, edges / time);
+
+    }
+
+}
@@ -0,0 +1,373 @@
+package main.java;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashSet;
+
+/**
+ * @author Aaron Zachariah
+ * Versioned binary snapshot of a loaded graph. A snapshot holds the name dictionary and the
+ * CSR arrays, so it can be read back without parsing any text.
+ *
+ * All values are little endian. The layout of version 2 is:
+ *  magic       8 bytes, "EPIGRAPH"
+ *  version     int
+ *  n           int, number of nodes
+ *  m           int, number of edges
+ *  name_bytes  long, total length of the encoded names
+ *  source_size long, length of the text file the snapshot was made from, or -1
+ *  source_time long, last modified time of that text file, or -1
+ *  offsets     int[n + 1]
+ *  neighbors   int[m]
+ *  name length int[n], length in bytes of each encoded name
+ *  names       UTF-8 bytes of every name, in node id order
+ *
+ * Snapshots are read through memory mapped buffers, and the arrays are filled with bulk
+ * copies straight from the mapping. The arrays are copied on purpose rather than read from the
+ * mapping in place: the workers index the CSR arrays in their innermost loops, where plain int
+ * arrays are much faster than buffer reads, and a mapping could be changed under a running
+ * simulation by another process writing the file. The copy runs at memory speed and is small next
+ * to parsing the text. The arrays are checked once they are read, so a corrupt or truncated
+ * snapshot is reported as an IOException instead of failing later in the simulation.
+ */
+public class GraphSnapshot {
+
+    /**
+     * Bytes every snapshot starts with
+     */
+    private static final byte[] MAGIC = "EPIGRAPH".getBytes(StandardCharsets.US_ASCII);
+
+    /**
+     * Current version of the format
+     */
+    public static final int VERSION = 2;
+
+    /**
+     * Extension added to the name of a text file to get the name of its snapshot
+     */
+    public static final String EXTENSION = ".snap";
+
+    /**
+     * Size of the header in bytes
+     */
+    private static final int HEADER = 44;
+
+    /**
+     * Largest number of ints read from a single mapping
+     */
+    private static final int WINDOW = 1 << 27;
+
+    /**
+     * Checks if a file is a snapshot by looking at its first bytes
+     * @param path path of the file
+     * @return true if the file starts with the snapshot magic bytes
+     * @throws IOException exception thrown on IO error when reading the file
+     */
+    public static boolean isSnapshot(String path) throws IOException {
+
+        RandomAccessFile file = new RandomAccessFile(path, "r");
+        try{
+            if(file.length() < MAGIC.length){
+                return false;
+            }
+            byte[] magic = new byte[MAGIC.length];
+            file.readFully(magic);
+            return Arrays.equals(magic, MAGIC);
+        } finally{
+            file.close();
+        }
+
+    }
+
+    /**
+     * Checks if a file is a snapshot made from a text file as it is now. The text file must have
+     * the same length and last modified time as when the snapshot was written, so a text file
+     * replaced by an older copy is not matched
+     * @param path path of the snapshot file
+     * @param source the text file
+     * @return true if the snapshot was written from the text file in its current state
+     * @throws IOException exception thrown on IO error when reading the file
+     */
+    public static boolean isSnapshotOf(String path, File source) throws IOException {
+
+        if(!new File(path).isFile() || !isSnapshot(path)){
+            return false;
+        }
+        RandomAccessFile file = new RandomAccessFile(path, "r");
+        try{
+            if(file.length() < HEADER){
+                return false;
+            }
+            byte[] bytes = new byte[HEADER];
+            file.readFully(bytes);
+            ByteBuffer header = ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN);
+            return header.getInt(MAGIC.length) == VERSION
+                && header.getLong(HEADER - 16) == source.length() && header.getLong(HEADER - 8) == source.lastModified();
+        } finally{
+            file.close();
+        }
+
+    }
+
+    /**
+     * Writes a snapshot of a graph's topology and names
+     * @param graph the graph to save
+     * @param path path of the snapshot file
+     * @throws IOException exception thrown on IO error when writing the file
+     */
+    public static void write(Graph graph, String path) throws IOException {
+
+        write(graph, path, null);
+
+    }
+
+    /**
+     * Writes a snapshot of a graph's topology and names, recording the text file it was loaded from
+     * @param graph the graph to save
+     * @param path path of the snapshot file
+     * @param source the text file the graph was loaded from, or null if there is none
+     * @throws IOException exception thrown on IO error when writing the file
+     */
+    public static void write(Graph graph, String path, File source) throws IOException {
+
+        graph.freeze();
+        CSRGraph csr = graph.csr;
+        int n = csr.size();
+
+        byte[][] names = new byte[n][];
+        long name_bytes = 0;
+        for(int u = 0; u < n; u++){
+            names[u] = graph.nodes.get(u).name.getBytes(StandardCharsets.UTF_8);
+            name_bytes += names[u].length;
+        }
+
+        RandomAccessFile file = new RandomAccessFile(path, "rw");
+        try{
+            file.setLength(0);
+            FileChannel channel = file.getChannel();
+            ByteBuffer buffer = ByteBuffer.allocateDirect(1 << 20).order(ByteOrder.LITTLE_ENDIAN);
+
+            buffer.put(MAGIC);
+            buffer.putInt(VERSION);
+            buffer.putInt(n);
+            buffer.putInt(csr.edgeCount());
+            buffer.putLong(name_bytes);
+            buffer.putLong(source == null ? -1 : source.length());
+            buffer.putLong(source == null ? -1 : source.lastModified());
+
+            for(int value : csr.offsets){
+                buffer = ensure(channel, buffer, 4);
+                buffer.putInt(value);
+            }
+            for(int value : csr.neighbors){
+                buffer = ensure(channel, buffer, 4);
+                buffer.putInt(value);
+            }
+            for(byte[] name : names){
+                buffer = ensure(channel, buffer, 4);
+                buffer.putInt(name.length);
+            }
+            for(byte[] name : names){
+                int i = 0;
+                while(i < name.length){
+                    buffer = ensure(channel, buffer, 1);
+                    int length = Math.min(name.length - i, buffer.remaining());
+                    buffer.put(name, i, length);
+                    i += length;
+                }
+            }
+
+            flush(channel, buffer);
+        } finally{
+            file.close();
+        }
+
+    }
+
+    /**
+     * Reads a snapshot into an empty graph
+     * @param graph the graph to fill, which must not hold any nodes yet
+     * @param path path of the snapshot file
+     * @return a line describing the size, edge count and throughput of the read
+     * @throws IOException exception thrown on IO error, or if the file is not a valid snapshot
+     */
+    public static String read(Graph graph, String path) throws IOException {
+
+        if(graph.size() != 0){
+            throw new IllegalStateException("Snapshots can only be read into an empty graph");
+        }
+
+        long start = System.nanoTime();
+
+        RandomAccessFile file = new RandomAccessFile(path, "r");
+        try{
+            FileChannel channel = file.getChannel();
+            long size = channel.size();
+            if(size < HEADER){
+                throw new IOException(path + " is not a graph snapshot");
+            }
+
+            MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER);
+            header.order(ByteOrder.LITTLE_ENDIAN);
+            byte[] magic = new byte[MAGIC.length];
+            header.get(magic);
+            if(!Arrays.equals(magic, MAGIC)){
+                throw new IOException(path + " is not a graph snapshot");
+            }
+            int version = header.getInt();
+            if(version != VERSION){
+                throw new IOException("Unsupported graph snapshot version " + version + " in " + path);
+            }
+            int n = header.getInt();
+            int m = header.getInt();
+            long name_bytes = header.getLong();
+            // the source of the snapshot is only checked by isSnapshotOf
+            header.getLong();
+            header.getLong();
+
+            long offsets_pos = HEADER;
+            long neighbors_pos = offsets_pos + 4L * (n + 1L);
+            long lengths_pos = neighbors_pos + 4L * m;
+            long names_pos = lengths_pos + 4L * n;
+            if(n < 0 || m < 0 || name_bytes < 0 || name_bytes > Integer.MAX_VALUE || names_pos + name_bytes != size){
+                throw new IOException("Corrupt graph snapshot " + path);
+            }
+
+            int[] offsets = readInts(channel, offsets_pos, n + 1);
+            int[] neighbors = readInts(channel, neighbors_pos, m);
+            int[] lengths = readInts(channel, lengths_pos, n);
+            check(offsets, neighbors, lengths, name_bytes, path);
+
+            // decode and check every name before the graph is changed, so a corrupt
+            // snapshot leaves it empty and the caller can fall back to the text file
+            MappedByteBuffer names = channel.map(FileChannel.MapMode.READ_ONLY, names_pos, name_bytes);
+            String[] decoded = new String[n];
+            HashSet<String> seen = new HashSet<String>();
+            byte[] bytes = new byte[64];
+            for(int u = 0; u < n; u++){
+                if(lengths[u] > bytes.length){
+                    bytes = new byte[lengths[u]];
+                }
+                names.get(bytes, 0, lengths[u]);
+                decoded[u] = new String(bytes, 0, lengths[u], StandardCharsets.UTF_8);
+                if(!seen.add(decoded[u])){
+                    throw new IOException("Corrupt graph snapshot " + path + ": duplicate node name " + decoded[u]);
+                }
+            }
+
+            // add the names in id order so every node gets back its id
+            for(String name : decoded){
+                graph.getId(name);
+            }
+            graph.setTopology(new CSRGraph(offsets, neighbors));
+
+            double seconds = (System.nanoTime() - start) / 1e9;
+            return GraphLoader.report("Read snapshot", size, m, seconds);
+
+        } finally{
+            file.close();
+        }
+
+    }
+
+    /**
+     * Checks that the arrays read from a snapshot describe a valid graph: the offsets start at 0,
+     * never decrease and end at the number of edges, every neighbor is a node id, and the name
+     * lengths add up to the size of the names
+     * @param offsets start of each node's adjacency list
+     * @param neighbors destination ids of all edges
+     * @param lengths length in bytes of each encoded name
+     * @param name_bytes total length of the encoded names
+     * @param path path of the snapshot file, for the error message
+     * @throws IOException exception thrown if the arrays are not valid
+     */
+    private static void check(int[] offsets, int[] neighbors, int[] lengths, long name_bytes, String path) throws IOException {
+
+        int n = lengths.length;
+        if(offsets[0] != 0 || offsets[n] != neighbors.length){
+            throw new IOException("Corrupt graph snapshot " + path + ": offsets do not cover the edges");
+        }
+        for(int u = 0; u < n; u++){
+            if(offsets[u + 1] < offsets[u]){
+                throw new IOException("Corrupt graph snapshot " + path + ": offsets decrease at node " + u);
+            }
+        }
+        for(int v : neighbors){
+            if(v < 0 || v >= n){
+                throw new IOException("Corrupt graph snapshot " + path + ": neighbor " + v + " is not a node");
+            }
+        }
+        long total = 0;
+        for(int length : lengths){
+            if(length < 0){
+                throw new IOException("Corrupt graph snapshot " + path + ": negative name length");
+            }
+            total += length;
+        }
+        if(total != name_bytes){
+            throw new IOException("Corrupt graph snapshot " + path + ": name lengths do not add up");
+        }
+
+    }
+
+    /**
+     * Reads an array of ints from the file, mapping at most WINDOW ints at a time
+     * @param channel channel of the file
+     * @param pos position of the first int in the file
+     * @param count number of ints to read
+     * @return the ints
+     * @throws IOException exception thrown on IO error when reading the file
+     */
+    private static int[] readInts(FileChannel channel, long pos, int count) throws IOException {
+
+        int[] values = new int[count];
+        for(int i = 0; i < count; i += WINDOW){
+            int length = Math.min(WINDOW, count - i);
+            MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, pos + 4L * i, 4L * length);
+            window.order(ByteOrder.LITTLE_ENDIAN).asIntBuffer().get(values, i, length);
+        }
+        return values;
+
+    }
+
+    /**
+     * Makes sure the buffer has room for a number of bytes, writing it out if it does not
+     * @param channel channel the buffer is written to
+     * @param buffer the buffer
+     * @param bytes number of bytes that are about to be added
+     * @return the buffer, ready for more bytes
+     * @throws IOException exception thrown on IO error when writing the file
+     */
+    private static ByteBuffer ensure(FileChannel channel, ByteBuffer buffer, int bytes) throws IOException {
+
+        if(buffer.remaining() < bytes){
+            flush(channel, buffer);
+        }
+        return buffer;
+
+    }
+
+    /**
+     * Writes out everything in the buffer and clears it
+     * @param channel channel the buffer is written to
+     * @param buffer the buffer
+     * @throws IOException exception thrown on IO error when writing the file
+     */
+    private static void flush(FileChannel channel, ByteBuffer buffer) throws IOException {
+
+        buffer.flip();
+        while(buffer.hasRemaining()){
+            channel.write(buffer);
+        }
+        buffer.clear();
+
+    }
+
+}
@@ -0,0 +1,73 @@
+package main.java;
+
+import java.util.Arrays;
+
+/**
+ * @author Aaron Zachariah
+ * Growable list of primitive ints. Used in place of ArrayList&lt;Integer&gt; on the simulation
+ * paths so that values are not boxed. Clearing the list keeps its storage, so a list which is
+ * cleared and refilled every tick stops allocating once it has reached its largest size.
+ */
+public class IntList {
+
+    /**
+     * Storage for the values. Only the first size entries are used
+     */
+    public int[] data;
+
+    /**
+     * Number of values in the list
+     */
+    public int size = 0;
+
+    /**
+     * IntList constructor
+     */
+    public IntList(){
+        this(16);
+    }
+
+    /**
+     * IntList constructor
+     * @param capacity initial number of values the list can hold without growing
+     */
+    public IntList(int capacity){
+        this.data = new int[Math.max(capacity, 1)];
+    }
+
+    /**
+     * Adds a value to the end of the list
+     * @param value value to add
+     */
+    public void add(int value){
+        if(size == data.length){
+            data = Arrays.copyOf(data, size * 2);
+        }
+        data[size++] = value;
+    }
+
+    /**
+     * Getter for a value in the list
+     * @param i index of the value
+     * @return the value at index i
+     */
+    public int get(int i){
+        return data[i];
+    }
+
+    /**
+     * size getter
+     * @return number of values in the list
+     */
+    public int size(){
+        return size;
+    }
+
+    /**
+     * Removes every value from the list, keeping the storage for reuse
+     */
+    public void clear(){
+        size = 0;
+    }
+
+}
@@ -7,15 +7,22 @@ package main.java;
  * the user compiles and runs the application. The main will show the gui to the user
  * where the user will be able to configure and start the simulation.
  * 
+ * When command line arguments are given the simulation runs headless instead,
+ * see BatchRunner for the options.
+ * 
  */
 public class Main {
     
     /**
      * Main method invoked upon running the application
-     * @param args command line args (unused)
+     * @param args command line args, which start a headless run when present
      */
     public static void main(String[] args){
 
+        if(args.length > 0){
+            System.exit(BatchRunner.run(args));
+        }
+
         Graph g = new Graph();
         
         // try {
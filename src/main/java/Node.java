@@ -6,27 +6,44 @@ package main.java;
  * Simple Node class, which represents a node in a graph. Each node has a unique name, 
  * a certain status and a running counter of the time the node has spent infected.
  * 
+ * The status and infection time are not stored in the Node itself. They are kept in the
+ * state and infected_at arrays of the Graph, indexed by the node id, and a Node is only
+ * a view over those arrays.
+ * 
  */
 public class Node implements Comparable<Node> {
     
     /**
-     * Unique name which is mutable
+     * Unique name which is immutable
      */
     public final String name;
 
     /**
-     * Status of the node. A node can be in four states:
+     * Dense integer id given to the node by the Graph it belongs to, or -1 if it has not been added to a graph
+     */
+    public int id = -1;
+
+    /**
+     * Graph which holds the state of the node, or null if it has not been added to a graph
+     */
+    public Graph graph = null;
+
+    /**
+     * Values stored in the Graph's state array. A node can be in four states:
      * s - susceptible
      * i - infected
      * r - recovered
      * d - dead
      */
-    public String status = "s";
+    public static final byte SUSCEPTIBLE = 0;
+    public static final byte INFECTED = 1;
+    public static final byte RECOVERED = 2;
+    public static final byte DEAD = 3;
 
     /**
-     * Running counter of time (in ticks) spent infected
+     * Letter used to display each state, indexed by the state value
      */
-    public int infection_time = 0;
+    private static final String[] STATUS = {"s", "i", "r", "d"};
 
     /**
      * Node constructor
@@ -36,6 +53,36 @@ public class Node implements Comparable<Node> {
         this.name = name;
     }
 
+    /**
+     * state getter
+     * @return the state of the node as one of the byte constants
+     */
+    public byte getState(){
+        if(graph == null || id >= graph.state.length){
+            return SUSCEPTIBLE;
+        }
+        return graph.state[id];
+    }
+
+    /**
+     * status getter
+     * @return the status letter of the node (s, i, r or d)
+     */
+    public String status(){
+        return STATUS[getState()];
+    }
+
+    /**
+     * infection time getter
+     * @return number of ticks since the node was infected, 0 if it never was
+     */
+    public int getInfectionTime(){
+        if(graph == null || id >= graph.infected_at.length || graph.state[id] == SUSCEPTIBLE){
+            return 0;
+        }
+        return graph.tick - graph.infected_at[id];
+    }
+
 
     @Override
     public int hashCode(){
@@ -61,14 +108,12 @@ public class Node implements Comparable<Node> {
         if(r1 != 0){
             return r1;
         }
-        int r2 = this.status.compareTo(n.status);
+        int r2 = Byte.compare(this.getState(), n.getState());
         if(r2 != 0){
             return r2;
         }
 
-        Integer v1 = this.infection_time;
-        Integer v2 = n.infection_time;
-        return v1.compareTo(v2);
+        return Integer.compare(this.getInfectionTime(), n.getInfectionTime());
     }
 
     /**
@@ -0,0 +1,157 @@
+package main.java;
+
+/**
+ * @author Aaron Zachariah
+ * Counter based random number generator. A stream is picked by a master seed, a purpose,
+ * a tick and a node, so every random decision of the simulation has its own stream and
+ * does not depend on which thread makes it or in which order the decisions are made.
+ *
+ * The numbers are made with the SplitMix64 generator: a counter moving in steps of the
+ * golden ratio, passed through a mixing function. Each worker keeps its own RandomStream
+ * and resets it for every node, so no generator state is shared between threads.
+ */
+public class RandomStream {
+
+    /**
+     * Purposes of the streams, so the same node and tick give different streams for each
+     */
+    public static final int INFECT = 1;
+    public static final int RECOVER = 2;
+    public static final int SEED = 3;
+    public static final int REPLICATE = 4;
+    public static final int EVENT = 5;
+    public static final int PULL = 6;
+
+    /**
+     * Step of the counter, the golden ratio as a 64 bit fraction
+     */
+    private static final long GOLDEN = 0x9E3779B97F4A7C15L;
+
+    /**
+     * Current value of the counter
+     */
+    private long state;
+
+    /**
+     * RandomStream constructor
+     * @param seed seed of the stream
+     */
+    public RandomStream(long seed){
+        this.state = seed;
+    }
+
+    /**
+     * Moves the generator to the start of the stream for a purpose, tick and node
+     * @param seed master seed of the simulation
+     * @param purpose one of the purposes above
+     * @param tick the tick
+     * @param node id of the node, or any other index
+     */
+    public void reset(long seed, int purpose, int tick, int node){
+        state = stream(seed, purpose, tick, node);
+    }
+
+    /**
+     * Computes the seed of the stream for a purpose, tick and node
+     * @param seed master seed of the simulation
+     * @param purpose one of the purposes above
+     * @param tick the tick
+     * @param node id of the node, or any other index
+     * @return seed of the stream
+     */
+    public static long stream(long seed, int purpose, int tick, int node){
+        long key = mix(seed + GOLDEN * purpose);
+        key = mix(key + GOLDEN * (tick + 1));
+        return mix(key + GOLDEN * (node + 1L));
+    }
+
+    /**
+     * Mixing function of SplitMix64
+     * @param z value to mix
+     * @return the mixed value
+     */
+    private static long mix(long z){
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    /**
+     * Next random long of the stream
+     * @return 64 random bits
+     */
+    public long nextLong(){
+        state += GOLDEN;
+        return mix(state);
+    }
+
+    /**
+     * Next random int of the stream between 0 and bound
+     * @param bound upper bound, exclusive, must be positive
+     * @return random int from 0 up to bound - 1
+     */
+    public int nextInt(int bound){
+        return (int) (((nextLong() >>> 32) * bound) >>> 32);
+    }
+
+    /**
+     * Next random double of the stream between 0 and 1
+     * @return random double from 0 up to but not including 1
+     */
+    public double nextDouble(){
+        return (nextLong() >>> 11) * 0x1.0p-53;
+    }
+
+    /**
+     * Largest mean of a binomial drawn in one walk. Larger draws are split into several, so the
+     * chance of no successes the walk starts from never gets too small for a double
+     */
+    private static final double WALK_MEAN = 32.0;
+
+    /**
+     * Next random draw of the stream from a binomial distribution, found by walking up the
+     * distribution function from 0. Quick when the mean n * p is small, as it is for infections.
+     * A larger mean is split into draws of at most WALK_MEAN each, whose sum has the same distribution
+     * @param n number of trials
+     * @param p probability of success of each trial, between 0 and 1
+     * @return number of successes from 0 up to n
+     */
+    public int nextBinomial(int n, double p){
+
+        if(n <= 0 || p <= 0.0){
+            return 0;
+        }
+        if(p >= 1.0){
+            return n;
+        }
+        // count the failures instead when they are the rarer outcome
+        if(p > 0.5){
+            return n - nextBinomial(n, 1.0 - p);
+        }
+
+        if(n * p > WALK_MEAN){
+            int part = (int) (WALK_MEAN / p);
+            int x = 0;
+            while(n > part){
+                x += nextBinomial(part, p);
+                n -= part;
+            }
+            return x + nextBinomial(n, p);
+        }
+
+        double q = 1.0 - p;
+        double s = p / q;
+        double a = (n + 1) * s;
+        double r = Math.pow(q, n);
+        double u = nextDouble();
+        int x = 0;
+        while(u > r && x < n){
+            u -= r;
+            x++;
+            r *= a / x - s;
+        }
+        return x;
+
+    }
+
+}
@@ -1,13 +1,16 @@
 package main.java;
 
-import java.util.*;
-import java.util.concurrent.locks.ReentrantLock;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
 
 /**
  * @author Aaron Zachariah
  * Class which extends the Thread class and functionality. This class is responsible
- * for updating the graph model using mutual exclusion. Each object represents a thread which
+ * for updating the graph model without locks. Each object represents a thread which
  * processes and edits parts of the Graph.
+ * 
+ * SimThreads are long lived workers owned by a TickExecutor, which hands out the work of each
+ * tick in chunks. Workers read the current state array and write their changes into the next one.
  */
 public class SimThread extends Thread {
 
@@ -32,244 +35,402 @@ public class SimThread extends Thread {
     public double lambda;
 
     /**
-     * Container to hold node names and their updated states
+     * Atomic access to the elements of the next state array
      */
-    public HashMap<String, Node> updatedNodes = new HashMap<String, Node>();
+    private static final VarHandle STATE = MethodHandles.arrayElementVarHandle(byte[].class);
 
     /**
-     * Lock for mutual exclusion
+     * Atomic access to the elements of the susceptible neighbor counts
      */
-    public ReentrantLock myLock;
+    private static final VarHandle COUNT = MethodHandles.arrayElementVarHandle(int[].class);
+
+    /**
+     * Random numbers of the node being processed, reset for every node
+     */
+    private final RandomStream rand = new RandomStream(0);
+
+    /**
+     * Container to hold the ids of nodes infected by this worker during the current tick.
+     * Cleared and reused every tick
+     */
+    public IntList updatedNodes = new IntList();
+
+    /**
+     * Number of nodes which recovered or died in this worker during the current tick
+     */
+    public int recovered_count = 0;
+    public int dead_count = 0;
+
+    /**
+     * Number of edges leading to the nodes this worker infected during the current tick, which
+     * no longer lead to a susceptible node
+     */
+    public long lost_edges = 0;
+
+    /**
+     * Position in the next frontier where this worker writes the nodes it infected
+     */
+    public int new_start = 0;
+
+    /**
+     * Time in nanoseconds this worker spent processing chunks during the last tick, the part
+     * of it spent in infectNodes, and the time it spent in resolveDue
+     */
+    public long busy_time = 0;
+    public long infect_time = 0;
+    public long resolve_time = 0;
+
+    /**
+     * Number of neighbors drawn during the last tick, how many of them had already been infected
+     * by another node during the tick, and how many infected nodes had fewer susceptible
+     * neighbors than their share of the force of infection
+     */
+    public long attempted = 0;
+    public long failed = 0;
+    public long capped = 0;
+
+    /**
+     * Susceptible neighbors of the node being processed, which the random picks are shuffled into.
+     * Cleared and reused for every node
+     */
+    private final IntList susceptible = new IntList();
+
+    /**
+     * Pool which owns this worker
+     */
+    public TickExecutor executor;
 
     /**
      * SimThread contructor 
      * @param graph Graph model object
+     * @param executor pool which owns the worker
+     */
+    public SimThread(Graph graph, TickExecutor executor){
+
+        this.graph = graph;
+        this.executor = executor;
+        this.lambda = graph.lambda;
+    }
+
+    /**
+     * Sets the range of infected nodes processed next
      * @param start staring index in the list of infected nodes
      * @param end ending index in the list of nodes
-     * @param l lock used to avoid race conditions
      */
-    public SimThread(Graph graph, int start, int end, ReentrantLock l){
+    public void setRange(int start, int end){
 
-        this.graph = graph;
         this.starting_index = start;
-        this.lambda = graph.lambda;
         this.ending_index = end;
-        this.myLock = l;
+
     }
 
     /**
      * Function to sequentially infect adjacent susceptible nodes and add them to the 
-     * collection of Nodes to update at the end of the thread
+     * collection of Nodes to update at the end of the tick.
+     * 
+     * The number of neighbors each infected node tries to infect is set by graph.transmission:
+     *  quota - the node at index i of the frontier gets the share quota(lambda, i), so the nodes
+     *          get lambda neighbors each on average
+     *  binomial - each edge to a susceptible neighbor carries the infection with probability
+     *             lambda / degree, so the number of neighbors is a binomial draw
+     * The draws come from a random stream reset for every node, so they only depend on the node
+     * and its place in the frontier, not on how the frontier is cut into chunks or on the number
+     * of threads. A neighbor is infected with a compare-and-set on the next state array, so when
+     * several workers pick the same node exactly one of them records it
      */
     public void infectNodes(){
         
-        // get reference to list of infected nodes
-        ArrayList<Node> infected = graph.infectedNodes;
-
-        // generate arraylist of 
-        int node = 1;
-        int infect = 0;
-        int total_infect = 0;
-        double foi = 0.0;
-
-        double diff = Math.abs(foi - lambda);
-        double prev_diff = Math.abs(foi - lambda);
-
-        ArrayList<Integer> infect_count = new ArrayList<Integer>();
+        // get reference to the infected nodes
+        int[] infected = graph.frontier;
+        CSRGraph csr = graph.csr;
+        boolean binomial = graph.transmission.equals("binomial");
 
         for(int i = starting_index; i < ending_index; i++){
-            
-            foi = (double) total_infect / node;
-            diff = Math.abs(foi - lambda);
-            prev_diff = Math.abs(foi - lambda);
-
-            while(true){
-                
-                foi = (double) total_infect / node;
-                prev_diff = diff;
-                diff = Math.abs(foi - lambda);
-
-                if(diff > prev_diff){
-                    infect--;
-                    total_infect--;
-                    break;
-                } else {
-                    infect++;
-                    total_infect++;
-                }
 
+            // get the total number of susceptible neighbors, kept up to date by the graph
+            int u = infected[i];
+            int ctr = graph.susceptible_neighbors[u];
+            // nodes with nothing left to infect are skipped
+            if(ctr == 0){
+                continue;
             }
-            //check the total number of susceptible neighbors
-            ArrayList<Edge> neighbors = graph.g.get(infected.get(i));
-            int ctr = 0;
-            for(Edge e : neighbors){
-                String name = e.getDest().name;
-                for(Node n : graph.nodes){
-                    if(n.name.equals(name)){
-                        if(n.status.equals("s")){
-                            ctr++;
-                        }
-                        break;
-                    }
+
+            int first = csr.offsets[u];
+            int degree = csr.offsets[u + 1] - first;
+            rand.reset(graph.seed, RandomStream.INFECT, graph.tick, u);
+
+            // get number of nodes to infect, never more than the susceptible neighbors
+            int to_infect;
+            if(binomial){
+                to_infect = rand.nextBinomial(ctr, Math.min(1.0, lambda / degree));
+            } else {
+                to_infect = quota(lambda, i);
+                if(to_infect > ctr){
+                    to_infect = ctr;
+                    capped++;
                 }
             }
-
-            if(infect > ctr){
-                total_infect -= Math.abs((infect - ctr));
-                infect = ctr;
+            if(to_infect == 0){
+                continue;
             }
-            
-            // add infect count to list and reset
-            infect_count.add(infect);
-            infect = 0;
-            // increment node and reset diff values
-            node++;
 
-        }
-        
-        // use the infect_count array to infect neighboring nodes
-        int ctr = 0; Random rand = new Random();
-        for(int i = starting_index;i < ending_index;i++){
-            
-            // get neighbors
-            ArrayList<Edge> neighbors = graph.g.get(infected.get(i));
-            // get number of nodes to infect
-            int to_infect = infect_count.get(ctr);
-            
-            // randomly infect nodes
-            int num_infected = 0;
-            int failures = 0;
-            while(num_infected < to_infect){
-                
-                int index = rand.nextInt(neighbors.size());
-                // get node from list
-			    Edge e = neighbors.get(index);
-                String name = e.getDest().name;
-                // search for node and add to map if possible
-                for(Node n : graph.g.keySet()){
-                    if(n.name.equals(name)){
-                        if(n.status.equals("s")){
-                            Node new_n = new Node(n.name);
-                            new_n.status = "i";
-                            new_n.infection_time = 0;
-                            updatedNodes.put(n.name, new_n);
-
-                            num_infected++;
-                        } 
-                        // failed to infect a node!
-                        else {  
-                            failures++;
-                        }
-                        break;
-                    }
+            // gather the neighbors which are susceptible at the start of the tick
+            susceptible.clear();
+            for(int j = first; j < first + degree; j++){
+                int v = csr.neighbors[j];
+                if(graph.state[v] == Node.SUSCEPTIBLE){
+                    susceptible.add(v);
                 }
+            }
 
-                if(failures > 5){
-                    break;
+            // pick to_infect of them at random without replacement, by partly shuffling the list
+            int[] picks = susceptible.data;
+            int size = susceptible.size();
+            for(int k = 0; k < to_infect; k++){
+
+                int index = k + rand.nextInt(size - k);
+                int v = picks[index];
+                picks[index] = picks[k];
+                picks[k] = v;
+                attempted++;
+
+                // only the first worker to pick the node records it
+                if(STATE.compareAndSet(graph.next_state, v, Node.SUSCEPTIBLE, Node.INFECTED)){
+                    updatedNodes.add(v);
+                } 
+                // another node infected it first
+                else {  
+                    failed++;
                 }
 
             }
 
-            ctr++;
         }
 
+    }
+
+    /**
+     * Function to infect susceptible nodes by looking at the nodes with an edge to them, used
+     * instead of infectNodes when most of the graph is infected. Each edge from an infected node u
+     * carries the infection with probability lambda / degree(u), as in the binomial transmission,
+     * and the node is infected by the first edge which does. Infected nodes are looked up in the
+     * executor's bitmap. Each node is only processed by one worker, so no compare-and-set is needed.
+     * Both directions give every edge the same chance, so they only differ in which one costs less
+     * @param first id of the first node to process
+     * @param end id after the last node to process
+     */
+    public void pullNodes(int first, int end){
+
+        byte[] state = graph.state;
+        long[] infected = executor.infectedBits();
+        CSRGraph csr = graph.csr;
+        CSRGraph reverse = graph.reverse_csr;
+
+        for(int v = first; v < end; v++){
+
+            if(state[v] != Node.SUSCEPTIBLE){
+                continue;
+            }
+
+            boolean drawn = false;
+            for(int j = reverse.offsets[v]; j < reverse.offsets[v + 1]; j++){
 
+                int u = reverse.neighbors[j];
+                if((infected[u >>> 6] & (1L << u)) == 0){
+                    continue;
+                }
+                // only set up the node's random stream once it has an infected neighbor
+                if(!drawn){
+                    rand.reset(graph.seed, RandomStream.PULL, graph.tick, v);
+                    drawn = true;
+                }
+                attempted++;
+                if(rand.nextDouble() * csr.degree(u) < lambda){
+                    graph.next_state[v] = Node.INFECTED;
+                    updatedNodes.add(v);
+                    break;
+                }
 
+            }
 
+        }
 
     }
 
     /**
-     * Function to increment the infection time of all infected nodes, possibly change states to recovered or dead
+     * Share of the force of infection given to the infected node at an index of the frontier.
+     * The first i nodes get lambda * i neighbors to infect between them, rounded half up, so
+     * every node gets lambda on average and the total of any run of nodes is within one of its share
+     * @param lambda force of infection
+     * @param i index of the node in the frontier
+     * @return number of neighbors the node should infect
      */
-    public void incrementInfected(){
+    public static int quota(double lambda, int i){
 
-        
-        Random r = new Random();
-        
-        // go thru all currently infected nodes
-        // get reference to list of infected nodes
-        ArrayList<Node> infected = graph.infectedNodes;
+        long before = (long) Math.floor(lambda * i + 0.5);
+        long after = (long) Math.floor(lambda * (i + 1) + 0.5);
+        return (int) Math.max(0, after - before);
 
-        for(int i = starting_index; i < ending_index; i++){
+    }
 
-            int next_time = infected.get(i).infection_time + 1;
-            // infection has run its course 
-            if(next_time >= graph.t){
+    /**
+     * Function to resolve the infections which end this tick, changing the nodes to recovered or dead.
+     * The nodes come from the graph's timing wheel, and the worker keeps claiming slices of them
+     * until none are left, so the infected nodes which are not due are never visited. The outcomes
+     * are counted in the worker's recovered and dead counters, which are cleared here and added to
+     * the graph's counters by the executor at the end of the tick
+     */
+    public void resolveDue(){
+
+        long start = System.nanoTime();
+        recovered_count = 0;
+        dead_count = 0;
+
+        IntList due = executor.dueNodes();
+        byte[] state = graph.next_state;
+        int slice;
+        while((slice = executor.claimDue()) >= 0){
+            int end = Math.min(slice + TickExecutor.DUE_SLICE, due.size());
+            for(int i = slice; i < end; i++){
+
+                int u = due.get(i);
+                // skip nodes which have already left the infected state
+                if(graph.state[u] != Node.INFECTED){
+                    continue;
+                }
 
-                double val = r.nextDouble();
+                rand.reset(graph.seed, RandomStream.RECOVER, graph.tick, u);
+                double val = rand.nextDouble();
                 // node recovers
                 if(val <= graph.d){
-                    myLock.lock();
-                    infected.get(i).status = "r";
-                    graph.infected--;
-                    graph.recovered++;
-                    myLock.unlock();
+                    state[u] = Node.RECOVERED;
+                    recovered_count++;
                 } 
                 // node dies
                 else {  
-                    
-                    myLock.lock();
-                    infected.get(i).status = "d";
-                    graph.infected --;
-                    graph.dead++;
-                    myLock.unlock();
-                
+                    state[u] = Node.DEAD;
+                    dead_count++;
                 }
 
-            } 
-            
-            // infection is not done, increment time
-            else {
-
-                myLock.lock();
-                infected.get(i).infection_time++;
-                myLock.unlock();
-                
             }
+        }
 
-        }   
+        resolve_time = System.nanoTime() - start;
 
     }
 
     /**
-     * Function to pass thru the map of updated nodes and update each node
+     * Function to count the infected nodes in the range which are still infected once this tick's
+     * infections have been resolved
+     * @return number of nodes in the range which are still infected
      */
-    public synchronized void updateNodes(){
-
-        for(String name : updatedNodes.keySet()){
+    public int countInfected(){
 
-            //find the node in the list of nodes
-            for(Node node : graph.nodes){
+        int[] infected = graph.frontier;
+        byte[] state = graph.next_state;
+        int still_infected = 0;
+        for(int i = starting_index; i < ending_index; i++){
+            if(state[infected[i]] == Node.INFECTED){
+                still_infected++;
+            }
+        }
+        return still_infected;
 
-                if(node.name.equals(name) && node.status.equals("s")){
+    }
 
-                    // update the graph node with the new state
-                    Node new_node = updatedNodes.get(name);
-                    node.status = "i";
-                    node.infection_time = new_node.infection_time;
-                    graph.infectedNodes.add(node);
-                    graph.infected++;
-                    graph.susceptible--;
-                    break;
+    /**
+     * Function to copy the nodes which are still infected into the next frontier, together
+     * with the nodes this worker infected. Each chunk of the old frontier and each worker's new
+     * infections are written to the positions given by the executor, so no two workers write
+     * to the same place. Also copies the new state of these nodes into the old state array
+     */
+    public void compactFrontier(){
+
+        int[] infected = graph.frontier;
+        int[] next_frontier = graph.next_frontier;
+        byte[] state = graph.state;
+        byte[] old_state = graph.next_state;
+
+        // keep the nodes of each claimed chunk which are still infected
+        int chunk;
+        while((chunk = executor.claimChunk()) >= 0){
+            int pos = executor.survivorStart(chunk);
+            for(int i = executor.chunkStart(chunk); i < executor.chunkStart(chunk + 1); i++){
+                int u = infected[i];
+                old_state[u] = state[u];
+                if(state[u] == Node.INFECTED){
+                    next_frontier[pos++] = u;
                 }
+            }
+        }
+
+        // add the nodes infected by this worker, which are no longer susceptible neighbors
+        // of the nodes with an edge to them. Other workers may update the same counts
+        CSRGraph reverse = graph.reverse_csr;
+        int[] susceptible_neighbors = graph.susceptible_neighbors;
+        lost_edges = 0;
+        int pos = new_start;
+        for(int i = 0; i < updatedNodes.size(); i++){
+            int v = updatedNodes.get(i);
+            old_state[v] = Node.INFECTED;
+            graph.infected_at[v] = graph.tick + 1;
+            next_frontier[pos++] = v;
+            for(int j = reverse.offsets[v]; j < reverse.offsets[v + 1]; j++){
+                COUNT.getAndAdd(susceptible_neighbors, reverse.neighbors[j], -1);
+            }
+            lost_edges += reverse.degree(v);
+        }
+
+    }
 
+    /**
+     * Processes this worker's share of the infected nodes for one tick
+     */
+    public void runTick(){
+
+        long start = System.nanoTime();
+        updatedNodes.clear();
+        infect_time = 0;
+        attempted = 0;
+        failed = 0;
+        capped = 0;
+        lambda = graph.lambda;
+
+        // process chunks until every chunk has been claimed. In pull ticks the infected
+        // nodes are only counted, and the susceptible nodes are processed afterwards
+        boolean pull = executor.isPull();
+        int chunk;
+        while((chunk = executor.claimChunk()) >= 0){
+            setRange(executor.chunkStart(chunk), executor.chunkStart(chunk + 1));
+            if(!pull){
+                long infect_start = System.nanoTime();
+                infectNodes();
+                infect_time += System.nanoTime() - infect_start;
             }
+            executor.setSurvivors(chunk, countInfected());
+        }
 
+        if(pull){
+            long infect_start = System.nanoTime();
+            int first;
+            while((first = executor.claimPullRange()) >= 0){
+                pullNodes(first, Math.min(first + TickExecutor.PULL_RANGE, graph.csr.size()));
+            }
+            infect_time += System.nanoTime() - infect_start;
         }
 
+        busy_time = System.nanoTime() - start;
+
     }
 
     /**
      * Overriden method from the Thread class.
-     * Responsible for processing infected nodes, and simulating the infection spread 
+     * Waits for the executor to start each tick and runs it until the executor is shut down 
      */
     @Override
     public void run(){
 
-        infectNodes();
-        incrementInfected();
-        updateNodes();
+        executor.workerLoop(this);
 
     }
 
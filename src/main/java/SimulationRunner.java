@@ -0,0 +1,228 @@
+package main.java;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author Aaron Zachariah
+ * Runs ticks of a simulation on a background thread, so the GUI stays responsive while the
+ * graph is being updated. A run goes on for a number of ticks or until no nodes are infected,
+ * and can be paused, resumed and cancelled. Cancelling takes effect once the current tick is done.
+ *
+ * The node counts of every tick are added to a buffer which the GUI drains at its own frame rate,
+ * so the GUI does not have to refresh once per tick and never reads the graph during a tick.
+ */
+public class SimulationRunner {
+
+    /**
+     * Number of ints recorded per tick: tick, susceptible, infected, recovered and dead
+     */
+    public static final int ROW = 5;
+
+    /**
+     * Graph object used for the simulation
+     */
+    private final Graph graph;
+
+    /**
+     * Single background thread which runs the ticks
+     */
+    private final ExecutorService executor;
+
+    /**
+     * State of the current run
+     */
+    private volatile boolean running = false;
+    private volatile boolean paused = false;
+    private volatile boolean cancelled = false;
+
+    /**
+     * Node counts of the ticks run since the last drain, ROW ints per tick. Guarded by this
+     */
+    private final IntList rows = new IntList();
+
+    /**
+     * Error which ended the last run, if any. Guarded by this
+     */
+    private RuntimeException error = null;
+
+    /**
+     * SimulationRunner constructor
+     * @param graph Graph model object
+     */
+    public SimulationRunner(Graph graph){
+
+        this.graph = graph;
+        this.executor = Executors.newSingleThreadExecutor(new ThreadFactory(){
+            public Thread newThread(Runnable r){
+                Thread thread = new Thread(r, "SimulationRunner");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+
+    }
+
+    /**
+     * Starts running ticks in the background
+     * @param ticks number of ticks to run, 0 to run until no nodes are infected
+     * @return false if a run is already going on
+     */
+    public synchronized boolean start(final int ticks){
+
+        if(running){
+            return false;
+        }
+        running = true;
+        paused = false;
+        cancelled = false;
+        executor.execute(new Runnable(){
+            public void run(){
+                runTicks(ticks);
+            }
+        });
+        return true;
+
+    }
+
+    /**
+     * Loop run on the background thread
+     * @param ticks number of ticks to run, 0 to run until no nodes are infected
+     */
+    private void runTicks(int ticks){
+
+        try{
+            int done = 0;
+            while(graph.infected > 0 && (ticks == 0 || done < ticks)){
+                waitWhilePaused();
+                if(cancelled){
+                    break;
+                }
+                graph.nextTick();
+                done++;
+                record();
+            }
+        } catch (RuntimeException e){
+            synchronized(this){
+                error = e;
+            }
+        } finally{
+            running = false;
+        }
+
+    }
+
+    /**
+     * Blocks the background thread while the run is paused
+     */
+    private synchronized void waitWhilePaused(){
+
+        while(paused && !cancelled){
+            try{
+                wait();
+            } catch (InterruptedException e){
+                cancelled = true;
+                Thread.currentThread().interrupt();
+            }
+        }
+
+    }
+
+    /**
+     * Adds the node counts of the tick that just ran to the buffer
+     */
+    private synchronized void record(){
+
+        rows.add(graph.tick);
+        rows.add(graph.susceptible);
+        rows.add(graph.infected);
+        rows.add(graph.recovered);
+        rows.add(graph.dead);
+
+    }
+
+    /**
+     * Moves the node counts recorded since the last call into a list, ROW ints per tick
+     * @param out list which is cleared and filled with the counts
+     * @return number of ticks moved into the list
+     */
+    public synchronized int drain(IntList out){
+
+        out.clear();
+        for(int i = 0; i < rows.size(); i++){
+            out.add(rows.get(i));
+        }
+        rows.clear();
+        return out.size() / ROW;
+
+    }
+
+    /**
+     * Pauses the run before its next tick
+     */
+    public synchronized void pause(){
+        paused = true;
+    }
+
+    /**
+     * Resumes a paused run
+     */
+    public synchronized void resume(){
+        paused = false;
+        notifyAll();
+    }
+
+    /**
+     * Stops the run once the current tick is done
+     */
+    public synchronized void cancel(){
+        cancelled = true;
+        paused = false;
+        notifyAll();
+    }
+
+    /**
+     * running getter
+     * @return true while a run is going on, including while it is paused
+     */
+    public boolean isRunning(){
+        return running;
+    }
+
+    /**
+     * paused getter
+     * @return true if the run is paused
+     */
+    public boolean isPaused(){
+        return paused;
+    }
+
+    /**
+     * Getter for the error which ended the last run, which is cleared
+     * @return the error, or null if the run ended normally
+     */
+    public synchronized RuntimeException takeError(){
+        RuntimeException e = error;
+        error = null;
+        return e;
+    }
+
+    /**
+     * Cancels any run and stops the background thread, waiting until the current tick is done so
+     * the graph's workers can be shut down safely afterwards
+     */
+    public void shutdown(){
+
+        cancel();
+        executor.shutdown();
+        try{
+            executor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e){
+            Thread.currentThread().interrupt();
+        }
+
+    }
+
+}
@@ -0,0 +1,381 @@
+package main.java;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author Aaron Zachariah
+ * Parameter sweep over the simulation parameters lambda, d, t, n, s and k. Every configuration
+ * of the design is run one or more times on a replicate of one loaded Graph, so the topology is
+ * only loaded once.
+ *
+ * Two designs are supported:
+ *  grid - every combination of the listed values of each parameter
+ *  lhs  - a Latin hypercube of a given number of samples, spanning the smallest to the largest
+ *         listed value of each parameter. Values of integer parameters are rounded
+ * Parameters which are not listed keep the value they have in the loaded Graph.
+ *
+ * The runs are scheduled on a fixed number of threads, and a new run is only submitted once a
+ * thread is free. The first run which fails stops the sweep and its error is thrown. The results table
+ * has one row per run with the configuration, the final size (nodes ever infected), the peak
+ * number of infected nodes and the tick of the peak.
+ */
+public class Sweep {
+
+    /**
+     * Names of the parameters which can be swept, in the order they appear in the results
+     */
+    public static final String[] PARAMETERS = {"lambda", "d", "t", "n", "s", "k"};
+
+    /**
+     * Graph holding the shared topology and the default parameters
+     */
+    private final Graph graph;
+
+    /**
+     * Values listed for each swept parameter
+     */
+    private final LinkedHashMap<String, double[]> values = new LinkedHashMap<String, double[]>();
+
+    /**
+     * Design used to combine the values: "grid" or "lhs"
+     */
+    public String design = "grid";
+
+    /**
+     * Number of configurations drawn by the lhs design
+     */
+    public int samples = 10;
+
+    /**
+     * Number of runs of every configuration
+     */
+    public int runs = 1;
+
+    /**
+     * Seeding strategy passed to Graph.seedInfection
+     */
+    public String strategy = "random";
+
+    /**
+     * Largest number of ticks to run, 0 for no limit
+     */
+    public int max_ticks = 0;
+
+    /**
+     * Number of runs done at the same time
+     */
+    public int num_threads = Runtime.getRuntime().availableProcessors();
+
+    /**
+     * Configurations of the design, each holding a value for every entry of PARAMETERS
+     */
+    private double[][] configs;
+
+    /**
+     * Results of every run: final size, peak infected, peak tick and number of ticks
+     */
+    private int[][] results;
+
+    /**
+     * Error of the first run which failed, which makes the other runs stop early
+     */
+    private volatile RuntimeException failure = null;
+
+    /**
+     * Sweep constructor
+     * @param graph loaded graph whose topology and parameters are used by every run
+     */
+    public Sweep(Graph graph){
+        this.graph = graph;
+    }
+
+    /**
+     * Sets the values of a swept parameter
+     * @param parameter one of PARAMETERS
+     * @param list values of the parameter, all of which must be valid
+     * @throws IllegalArgumentException if the parameter is unknown or a value is invalid
+     */
+    public void setValues(String parameter, double[] list){
+
+        if(index(parameter) < 0){
+            throw new IllegalArgumentException("Unknown sweep parameter: " + parameter);
+        }
+        if(list.length == 0){
+            throw new IllegalArgumentException("No values given for " + parameter);
+        }
+        for(double value : list){
+            check(parameter, value);
+        }
+        values.put(parameter, list.clone());
+
+    }
+
+    /**
+     * Reads a sweep specification of the form "lambda=1.0,1.5;d=0.3,0.5"
+     * @param spec the specification
+     * @throws IllegalArgumentException if the specification cannot be read
+     */
+    public void parse(String spec){
+
+        for(String part : spec.split(";")){
+            if(part.trim().isEmpty()){
+                continue;
+            }
+            String[] pair = part.split("=");
+            if(pair.length != 2){
+                throw new IllegalArgumentException("Invalid sweep parameter: " + part);
+            }
+            String[] items = pair[1].split(",");
+            double[] list = new double[items.length];
+            try{
+                for(int i = 0; i < items.length; i++){
+                    list[i] = Double.parseDouble(items[i].trim());
+                }
+            } catch (NumberFormatException nfe){
+                throw new IllegalArgumentException("Invalid number in sweep parameter: " + part);
+            }
+            setValues(pair[0].trim(), list);
+        }
+
+    }
+
+    /**
+     * Checks that a parameter value is valid, using the same rules as the GUI
+     * @param parameter one of PARAMETERS
+     * @param value the value
+     */
+    private static void check(String parameter, double value){
+
+        boolean valid;
+        if(parameter.equals("lambda")){
+            valid = value > 0.0;
+        } else if(parameter.equals("d")){
+            valid = value >= 0.0 && value <= 1.0;
+        } else if(parameter.equals("s")){
+            valid = value >= 0 && value == Math.rint(value);
+        } else {
+            valid = value >= 1 && value == Math.rint(value);
+        }
+        if(!valid){
+            throw new IllegalArgumentException("Invalid value for " + parameter + ": " + value);
+        }
+
+    }
+
+    /**
+     * Finds the position of a parameter in PARAMETERS
+     * @param parameter name of the parameter
+     * @return the position, or -1 if it is not a sweep parameter
+     */
+    private static int index(String parameter){
+        for(int i = 0; i < PARAMETERS.length; i++){
+            if(PARAMETERS[i].equals(parameter)){
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Builds the configurations of the design
+     * @param rand random number generator used by the lhs design
+     * @return every configuration, each holding a value for every entry of PARAMETERS
+     */
+    private double[][] buildDesign(Random rand){
+
+        double[] defaults = {graph.lambda, graph.d, graph.t, graph.n_infected, graph.s_infected, graph.k_infected};
+
+        if(design.equals("grid")){
+
+            int count = 1;
+            for(double[] list : values.values()){
+                count *= list.length;
+            }
+            ArrayList<Map.Entry<String, double[]>> entries = new ArrayList<Map.Entry<String, double[]>>(values.entrySet());
+            double[][] grid = new double[count][];
+            for(int c = 0; c < count; c++){
+                grid[c] = defaults.clone();
+                // the last parameter changes fastest
+                int rest = c;
+                for(int p = entries.size() - 1; p >= 0; p--){
+                    double[] list = entries.get(p).getValue();
+                    grid[c][index(entries.get(p).getKey())] = list[rest % list.length];
+                    rest /= list.length;
+                }
+            }
+            return grid;
+
+        } else if(design.equals("lhs")){
+
+            double[][] lhs = new double[samples][];
+            for(int c = 0; c < samples; c++){
+                lhs[c] = defaults.clone();
+            }
+            for(Map.Entry<String, double[]> entry : values.entrySet()){
+                double min = Double.MAX_VALUE;
+                double max = -Double.MAX_VALUE;
+                for(double value : entry.getValue()){
+                    min = Math.min(min, value);
+                    max = Math.max(max, value);
+                }
+                // one sample in each of the equal strata, in a random order
+                int[] order = new int[samples];
+                for(int i = 0; i < samples; i++){
+                    order[i] = i;
+                }
+                for(int i = samples - 1; i > 0; i--){
+                    int j = rand.nextInt(i + 1);
+                    int tmp = order[i];
+                    order[i] = order[j];
+                    order[j] = tmp;
+                }
+                int p = index(entry.getKey());
+                for(int c = 0; c < samples; c++){
+                    double value = min + (order[c] + rand.nextDouble()) / samples * (max - min);
+                    if(p >= 2){
+                        value = Math.rint(value);
+                    }
+                    lhs[c][p] = value;
+                }
+            }
+            return lhs;
+
+        }
+
+        throw new IllegalArgumentException("Unknown sweep design: " + design);
+
+    }
+
+    /**
+     * Method to build the design and run every configuration
+     * @throws InterruptedException exception thrown if the thread is interrupted while waiting for the runs
+     */
+    public void run() throws InterruptedException {
+
+        graph.freeze();
+        configs = buildDesign(new Random(graph.seed));
+        results = new int[configs.length * runs][];
+
+        // a new run is only submitted once one of the threads is free, so the pool never holds
+        // more than one run per thread and no more than num_threads runs go on at once
+        int threads = Math.max(1, num_threads);
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        final Semaphore free = new Semaphore(threads);
+        failure = null;
+        try{
+            for(int i = 0; i < results.length; i++){
+                free.acquire();
+                // stop submitting once a run has failed
+                if(failure != null){
+                    break;
+                }
+                final int run = i;
+                pool.execute(new Runnable(){
+                    public void run(){
+                        try{
+                            results[run] = runConfig(configs[run / runs], RandomStream.stream(graph.seed, RandomStream.REPLICATE, 0, run));
+                        } catch (RuntimeException e){
+                            synchronized(Sweep.this){
+                                if(failure == null){
+                                    failure = e;
+                                }
+                            }
+                        } finally{
+                            free.release();
+                        }
+                    }
+                });
+            }
+        } finally{
+            pool.shutdown();
+            pool.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+        }
+        if(failure != null){
+            throw failure;
+        }
+
+    }
+
+    /**
+     * Runs one configuration on a new replicate of the graph
+     * @param config value of every entry of PARAMETERS
+     * @param seed seed of the run
+     * @return final size, peak infected, peak tick and number of ticks of the run
+     */
+    private int[] runConfig(double[] config, long seed){
+
+        Graph replicate = graph.replicate();
+        replicate.seed = seed;
+        replicate.lambda = config[0];
+        replicate.d = config[1];
+        replicate.t = (int) config[2];
+        replicate.n_infected = (int) config[3];
+        replicate.s_infected = (int) config[4];
+        replicate.k_infected = (int) config[5];
+
+        int peak = 0;
+        int peak_tick = 0;
+        try{
+            replicate.seedInfection(strategy);
+            peak = replicate.infected;
+            while(replicate.infected > 0 && (max_ticks == 0 || replicate.tick < max_ticks) && failure == null){
+                replicate.nextTick();
+                if(replicate.infected > peak){
+                    peak = replicate.infected;
+                    peak_tick = replicate.tick;
+                }
+            }
+        } finally{
+            replicate.shutdown();
+        }
+
+        return new int[]{replicate.size() - replicate.susceptible, peak, peak_tick, replicate.tick};
+
+    }
+
+    /**
+     * Method to write the results table as CSV, one row per run
+     * @param out stream to write to
+     */
+    public void write(PrintStream out){
+
+        StringBuilder header = new StringBuilder("config,run");
+        for(String parameter : PARAMETERS){
+            header.append(',').append(parameter);
+        }
+        header.append(",final_size,peak_infected,peak_tick,ticks");
+        out.println(header);
+
+        for(int i = 0; i < results.length; i++){
+            double[] config = configs[i / runs];
+            StringBuilder row = new StringBuilder();
+            row.append(i / runs).append(',').append(i % runs);
+            row.append(',').append(config[0]).append(',').append(config[1]);
+            for(int p = 2; p < PARAMETERS.length; p++){
+                row.append(',').append((int) config[p]);
+            }
+            for(int value : results[i]){
+                row.append(',').append(value);
+            }
+            out.println(row);
+        }
+
+    }
+
+    /**
+     * size getter
+     * @return number of runs in the sweep
+     */
+    public int size(){
+        return results == null ? 0 : results.length;
+    }
+
+}
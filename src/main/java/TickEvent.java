@@ -0,0 +1,83 @@
+package main.java;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+/**
+ * @author Aaron Zachariah
+ * Flight Recorder event committed once per tick by the TickExecutor. The event only costs
+ * anything while a recording with it enabled is running, for example one started with
+ * -XX:StartFlightRecording or with jcmd JFR.start. Its duration is the wall time of the tick.
+ */
+@Name("epidemic.Tick")
+@Label("Simulation Tick")
+@Category("Epidemic Simulation")
+@Description("Phase times, load balance and infection counts of one tick")
+public class TickEvent extends jdk.jfr.Event {
+
+    @Label("Tick")
+    int tick;
+
+    @Label("Infect Phase")
+    @Timespan
+    long infectPhase;
+
+    @Label("Infect Time")
+    @Description("Time spent infecting neighbors, added over all workers")
+    @Timespan
+    long infectTime;
+
+    @Label("Resolve Time")
+    @Description("Time spent resolving the infections which ended, added over all workers")
+    @Timespan
+    long resolveTime;
+
+    @Label("Merge")
+    @Timespan
+    long merge;
+
+    @Label("Frontier Cleanup")
+    @Timespan
+    long cleanup;
+
+    @Label("Workers")
+    int workers;
+
+    @Label("Slowest Worker")
+    @Timespan
+    long maxBusy;
+
+    @Label("Imbalance")
+    @Description("Busy time of the slowest worker divided by the mean busy time")
+    double imbalance;
+
+    @Label("Frontier Size")
+    int frontierSize;
+
+    @Label("Pull Mode")
+    @Description("Whether the tick went through the edges into the susceptible nodes")
+    boolean pull;
+
+    @Label("Infections Attempted")
+    long attempted;
+
+    @Label("Infections Failed")
+    @Description("Neighbors drawn which another node had already infected in the tick")
+    long failed;
+
+    @Label("Nodes Capped")
+    @Description("Infected nodes with fewer susceptible neighbors than their share")
+    long capped;
+
+    @Label("New Infections")
+    int newInfections;
+
+    @Label("Allocated")
+    @DataAmount
+    long allocated;
+
+}
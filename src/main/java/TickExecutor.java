@@ -0,0 +1,613 @@
+package main.java;
+
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.concurrent.Phaser;
+import java.util.concurrent.atomic.AtomicInteger;
+import jdk.jfr.EventType;
+
+/**
+ * @author Aaron Zachariah
+ * Long lived pool of SimThread workers used to run the ticks of a simulation.
+ * The workers are created once and then reused for every tick. The thread calling runTick()
+ * acts as worker 0, so a pool of size 1 does not start any threads at all.
+ *
+ * The infected nodes are cut into chunks of about equal work, where the work of a node is its
+ * degree plus one, or just one if it has no susceptible neighbors left. The workers claim chunks
+ * one at a time, so idle workers pick up the work left by busy ones. The chunks only depend on
+ * the infected nodes and not on the number of workers, and the nodes infected during a tick are
+ * added to the next frontier in id order, so a run with a given seed is the same whatever the
+ * number of threads.
+ *
+ * Each tick runs in up to three phases, and the workers and the calling thread meet at a Phaser
+ * at the start and end of each phase:
+ *  resolve - workers resolve the infections which end this tick, taken from the graph's timing
+ *            wheel, writing into the next state array. Skipped when no infection ends
+ *  infect - workers infect neighbors from the infected nodes of their chunks, writing into the
+ *           next state array, and count the nodes of each chunk which are still infected
+ *  compact - workers copy the nodes which are still infected and the nodes they infected into
+ *            the next frontier, at positions computed by the calling thread between the phases
+ * With the binomial transmission the infect phase can run in one of two directions, as in
+ * direction optimizing BFS. In push mode the workers go through the edges of the infected nodes.
+ * In pull mode they go through ranges of node ids and, for each susceptible node, through the edges
+ * leading to it, looking the infected nodes up in a bitmap. Pull mode is picked when the edges into
+ * susceptible nodes, plus a small cost for scanning every node, are fewer than the edges of the
+ * infected nodes, which happens around the peak of a large outbreak. The choice only depends on
+ * the state of the graph, so it is the same whatever the number of workers.
+ *
+ * The calling thread then swaps the state arrays and the frontiers, files the new infections
+ * in the timing wheel and merges the workers' counters into the graph's counters.
+ *
+ * The time of each phase, the workers' counters and the memory allocated during the tick are
+ * recorded in the graph's TickStats. A TickEvent is only made and committed while Flight Recorder
+ * is recording it.
+ */
+public class TickExecutor {
+
+    /**
+     * Graph object used for the simulation
+     */
+    private final Graph graph;
+
+    /**
+     * Workers, one per thread. workers[0] is run by the thread calling runTick()
+     */
+    private final SimThread[] workers;
+
+    /**
+     * Phase barrier shared by the workers and the calling thread
+     */
+    private final Phaser phaser;
+
+    /**
+     * Set when the pool is shut down, so the workers leave their loop
+     */
+    private volatile boolean stopped = false;
+
+    /**
+     * First error thrown by a worker during the current tick
+     */
+    private volatile RuntimeException error = null;
+
+    /**
+     * Flight Recorder type of the tick event, checked every tick so no event is made while it is not recorded
+     */
+    private static final EventType TICK_EVENT = EventType.getEventType(TickEvent.class);
+
+    /**
+     * Amount of work in a chunk. Smaller chunks balance the work better but cost more claims
+     */
+    private static final int CHUNK_WORK = 1 << 12;
+
+    /**
+     * Index of the first infected node in each chunk. Chunk c covers the infected nodes
+     * chunk_starts[c] up to chunk_starts[c+1]
+     */
+    private int[] chunk_starts = new int[2];
+
+    /**
+     * Number of node ids in each range claimed during a pull tick
+     */
+    static final int PULL_RANGE = 1 << 12;
+
+    /**
+     * Number of nodes scanned in a pull tick that cost as much as following one edge
+     */
+    private static final int PULL_SCAN = 16;
+
+    /**
+     * Whether the current tick runs in pull mode
+     */
+    private boolean pull = false;
+
+    /**
+     * Bit u is set when node u is infected at the start of the current pull tick
+     */
+    private long[] infected_bits = new long[0];
+
+    /**
+     * Start of the next range of node ids to hand out in a pull tick
+     */
+    private final AtomicInteger next_range = new AtomicInteger();
+
+    /**
+     * Number of due nodes in each slice claimed during the resolve phase
+     */
+    static final int DUE_SLICE = 1 << 12;
+
+    /**
+     * Nodes whose infection ends in the current tick
+     */
+    private IntList due = new IntList();
+
+    /**
+     * Number of chunks in the current tick
+     */
+    private int chunk_count = 0;
+
+    /**
+     * Index of the next chunk to hand out
+     */
+    private final AtomicInteger next_chunk = new AtomicInteger();
+
+    /**
+     * Number of nodes of each chunk which are still infected after the infect phase,
+     * then turned into the position of each chunk in the next frontier
+     */
+    private int[] survivors = new int[2];
+
+    /**
+     * Phase run by the workers when they are released
+     */
+    private volatile int phase = INFECT;
+    private static final int INFECT = 0;
+    private static final int COMPACT = 1;
+    private static final int RESOLVE = 2;
+
+    /**
+     * Running total of the work of the infected nodes, reused every tick
+     */
+    private long[] work = new long[16];
+
+    /**
+     * Scaling efficiency of the last tick: the total busy time of the workers divided by
+     * the number of workers times the busy time of the slowest worker. 1.0 means perfect balance
+     */
+    private double efficiency = 1.0;
+
+    /**
+     * Source of the bytes allocated by each thread, or null if the JVM cannot measure them
+     */
+    private final com.sun.management.ThreadMXBean threads;
+
+    /**
+     * Ids of the threads running the workers. The first id is the thread calling runTick()
+     */
+    private final long[] thread_ids;
+
+    /**
+     * TickExecutor constructor, starts all the worker threads
+     * @param graph Graph model object
+     * @param num_threads number of workers, including the calling thread
+     */
+    public TickExecutor(Graph graph, int num_threads){
+
+        this.graph = graph;
+        this.workers = new SimThread[num_threads];
+        this.phaser = new Phaser(num_threads);
+
+        for(int i = 0; i < num_threads; i++){
+            workers[i] = new SimThread(graph, this);
+        }
+        for(int i = 1; i < num_threads; i++){
+            workers[i].setName("SimThread-" + i);
+            workers[i].setDaemon(true);
+            workers[i].start();
+        }
+
+        thread_ids = new long[num_threads];
+        for(int i = 1; i < num_threads; i++){
+            thread_ids[i] = workers[i].getId();
+        }
+        com.sun.management.ThreadMXBean bean = null;
+        if(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean){
+            bean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+            if(!bean.isThreadAllocatedMemorySupported() || !bean.isThreadAllocatedMemoryEnabled()){
+                bean = null;
+            }
+        }
+        threads = bean;
+
+    }
+
+    /**
+     * size getter
+     * @return number of workers in the pool
+     */
+    public int size(){
+        return workers.length;
+    }
+
+    /**
+     * Method to split the infected nodes between the workers and run one tick on all of them.
+     * Returns once every worker is done
+     */
+    public void runTick(){
+
+        if(stopped){
+            throw new IllegalStateException("TickExecutor has been shut down");
+        }
+
+        TickEvent event = null;
+        if(TICK_EVENT.isEnabled()){
+            event = new TickEvent();
+            event.begin();
+        }
+        long start = System.nanoTime();
+        long allocated_start = allocatedBytes();
+        int frontier_size = graph.frontier_size;
+
+        long infect_start = System.nanoTime();
+        due = graph.recoveries.take(graph.tick);
+        next_chunk.set(0);
+        if(due.size() == 0){
+            // nothing to resolve, only clear the workers' counters
+            for(SimThread worker : workers){
+                worker.resolveDue();
+            }
+        } else {
+            runPhase(RESOLVE);
+        }
+
+        long push_edges = createChunks(graph.frontier_size);
+        pull = choosePull(push_edges);
+        runPhase(INFECT);
+        long infect_end = System.nanoTime();
+        measureEfficiency();
+
+        // swap the state arrays so the state computed by the workers becomes current
+        byte[] next = graph.next_state;
+        graph.next_state = graph.state;
+        graph.state = next;
+
+        // find where each chunk and each worker writes into the next frontier
+        int pos = 0;
+        for(int c = 0; c < chunk_count; c++){
+            int count = survivors[c];
+            survivors[c] = pos;
+            pos += count;
+        }
+        int survivor_count = pos;
+        for(SimThread worker : workers){
+            worker.new_start = pos;
+            pos += worker.updatedNodes.size();
+        }
+        if(graph.next_frontier.length < pos){
+            graph.next_frontier = new int[Math.max(pos, graph.next_frontier.length * 2)];
+        }
+
+        next_chunk.set(0);
+        long cleanup_start = System.nanoTime();
+        runPhase(COMPACT);
+
+        // which worker records a new infection depends on timing, so put them in id order
+        if(workers.length == 1){
+            Arrays.sort(graph.next_frontier, survivor_count, pos);
+        } else {
+            Arrays.parallelSort(graph.next_frontier, survivor_count, pos);
+        }
+
+        // file the new infections under the tick they end
+        int end_tick = graph.tick + graph.t;
+        for(int i = survivor_count; i < pos; i++){
+            graph.recoveries.add(graph.next_frontier[i], end_tick);
+        }
+
+        // the next frontier becomes current
+        int[] frontier = graph.frontier;
+        graph.frontier = graph.next_frontier;
+        graph.next_frontier = frontier;
+        graph.frontier_size = pos;
+        long cleanup_end = System.nanoTime();
+
+        mergeCounters();
+
+        long end = System.nanoTime();
+        long allocated = allocated_start < 0 ? -1 : allocatedBytes() - allocated_start;
+        graph.stats.record(graph.tick, frontier_size, pull, end - start, infect_end - infect_start,
+            (cleanup_start - infect_end) + (end - cleanup_end), cleanup_end - cleanup_start, workers, allocated);
+
+        if(event != null){
+            event.end();
+            if(event.shouldCommit()){
+                graph.stats.fill(event);
+                event.commit();
+            }
+        }
+
+    }
+
+    /**
+     * Adds up the bytes allocated so far by the threads running the workers
+     * @return number of bytes, or -1 if the JVM cannot measure them
+     */
+    private long allocatedBytes(){
+
+        if(threads == null){
+            return -1;
+        }
+        thread_ids[0] = Thread.currentThread().getId();
+        long total = 0;
+        for(long bytes : threads.getThreadAllocatedBytes(thread_ids)){
+            if(bytes < 0){
+                return -1;
+            }
+            total += bytes;
+        }
+        return total;
+
+    }
+
+    /**
+     * Releases the workers to run a phase, runs worker 0's part and waits for the rest
+     * @param p the phase to run
+     */
+    private void runPhase(int p){
+
+        phase = p;
+        phaser.arriveAndAwaitAdvance();
+        work(workers[0]);
+        phaser.arriveAndAwaitAdvance();
+
+        if(error != null){
+            RuntimeException e = error;
+            error = null;
+            throw e;
+        }
+
+    }
+
+    /**
+     * Decides whether the current tick runs in pull mode, and if so fills the bitmap of infected nodes
+     * @param push_edges number of edges push mode would go through
+     * @return true for pull mode
+     */
+    private boolean choosePull(long push_edges){
+
+        int n = graph.csr.size();
+        if(!graph.transmission.equals("binomial") || graph.susceptible_edges + n / PULL_SCAN >= push_edges){
+            return false;
+        }
+
+        int words = (n + 63) >>> 6;
+        if(infected_bits.length < words){
+            infected_bits = new long[words];
+        } else {
+            Arrays.fill(infected_bits, 0, words, 0L);
+        }
+        for(int i = 0; i < graph.frontier_size; i++){
+            int u = graph.frontier[i];
+            infected_bits[u >>> 6] |= 1L << u;
+        }
+        next_range.set(0);
+        return true;
+
+    }
+
+    /**
+     * Cuts the infected nodes into chunks holding about the same amount of work.
+     * A node with more work than a whole chunk gets a chunk of its own
+     * @param size number of infected nodes
+     * @return number of edges of the infected nodes which still have susceptible neighbors
+     */
+    private long createChunks(int size){
+
+        // running total of the work up to each infected node
+        if(work.length < size + 1){
+            work = new long[Math.max(size + 1, work.length * 2)];
+        }
+        int[] infected = graph.frontier;
+        CSRGraph csr = graph.csr;
+        work[0] = 0;
+        // nodes without susceptible neighbors have nothing to infect, so only count their own update
+        int[] susceptible_neighbors = graph.susceptible_neighbors;
+        for(int i = 0; i < size; i++){
+            int u = infected[i];
+            work[i + 1] = work[i] + (susceptible_neighbors[u] == 0 ? 1 : csr.degree(u) + 1);
+        }
+
+        // place each chunk boundary where the running total crosses the next share of the work
+        long total = work[size];
+        long edges = total - size;
+        int max_chunks = (int) Math.max(1, Math.min(size, (total + CHUNK_WORK - 1) / CHUNK_WORK));
+        if(chunk_starts.length < max_chunks + 1){
+            chunk_starts = new int[max_chunks + 1];
+            survivors = new int[max_chunks];
+        }
+        chunk_count = 0;
+        chunk_starts[0] = 0;
+        for(int c = 1; c < max_chunks; c++){
+            long target = total * c / max_chunks;
+            int pos = Arrays.binarySearch(work, 0, size + 1, target);
+            if(pos < 0){
+                pos = -pos - 1;
+            }
+            if(pos > chunk_starts[chunk_count] && pos < size){
+                chunk_starts[++chunk_count] = pos;
+            }
+        }
+        chunk_starts[++chunk_count] = size;
+
+        next_chunk.set(0);
+        return edges;
+
+    }
+
+    /**
+     * Hands out the next chunk of the current tick
+     * @return index of the chunk, or -1 if every chunk has been claimed
+     */
+    int claimChunk(){
+
+        int c = next_chunk.getAndIncrement();
+        return c < chunk_count ? c : -1;
+
+    }
+
+    /**
+     * Hands out the next slice of the nodes due in the current tick
+     * @return index of the first node of the slice, or -1 if every slice has been claimed
+     */
+    int claimDue(){
+
+        int start = next_chunk.getAndAdd(DUE_SLICE);
+        return start < due.size() ? start : -1;
+
+    }
+
+    /**
+     * Hands out the next range of node ids in a pull tick
+     * @return id of the first node of the range, or -1 if every range has been claimed
+     */
+    int claimPullRange(){
+
+        int first = next_range.getAndAdd(PULL_RANGE);
+        return first < graph.csr.size() ? first : -1;
+
+    }
+
+    /**
+     * pull getter
+     * @return whether the current tick runs in pull mode
+     */
+    boolean isPull(){
+        return pull;
+    }
+
+    /**
+     * Getter for the bitmap of the nodes infected at the start of the current pull tick
+     * @return bit u of word u / 64 is set when node u is infected
+     */
+    long[] infectedBits(){
+        return infected_bits;
+    }
+
+    /**
+     * Getter for the nodes whose infection ends in the current tick
+     * @return ids of the nodes
+     */
+    IntList dueNodes(){
+        return due;
+    }
+
+    /**
+     * Records how many nodes of a chunk are still infected after the infect phase
+     * @param c index of the chunk
+     * @param count number of nodes still infected
+     */
+    void setSurvivors(int c, int count){
+        survivors[c] = count;
+    }
+
+    /**
+     * Getter for the position of a chunk's remaining infected nodes in the next frontier
+     * @param c index of the chunk
+     * @return index in the next frontier
+     */
+    int survivorStart(int c){
+        return survivors[c];
+    }
+
+    /**
+     * Getter for the first infected node of a chunk
+     * @param c index of the chunk, or the chunk count to get the end of the last chunk
+     * @return index in the list of infected nodes
+     */
+    int chunkStart(int c){
+        return chunk_starts[c];
+    }
+
+    /**
+     * Computes the scaling efficiency of the tick from the busy time of each worker
+     */
+    private void measureEfficiency(){
+
+        long total = 0;
+        long max = 0;
+        for(SimThread worker : workers){
+            total += worker.busy_time;
+            max = Math.max(max, worker.busy_time);
+        }
+        efficiency = max == 0 ? 1.0 : (double) total / ((double) max * workers.length);
+
+    }
+
+    /**
+     * efficiency getter
+     * @return scaling efficiency of the last tick, between 0 and 1
+     */
+    public double getEfficiency(){
+        return efficiency;
+    }
+
+    /**
+     * Merges the workers' counters into the graph's counters
+     */
+    private void mergeCounters(){
+
+        for(SimThread worker : workers){
+            int new_infections = worker.updatedNodes.size();
+            graph.susceptible -= new_infections;
+            graph.infected += new_infections - worker.recovered_count - worker.dead_count;
+            graph.recovered += worker.recovered_count;
+            graph.dead += worker.dead_count;
+            graph.susceptible_edges -= worker.lost_edges;
+        }
+
+    }
+
+    /**
+     * Loop run by every worker thread. Waits for a tick to start, processes its range
+     * and waits for the other workers before going back to sleep
+     * @param worker the worker running the loop
+     */
+    void workerLoop(SimThread worker){
+
+        while(true){
+            phaser.arriveAndAwaitAdvance();
+            if(stopped){
+                phaser.arriveAndDeregister();
+                return;
+            }
+            work(worker);
+            phaser.arriveAndAwaitAdvance();
+        }
+
+    }
+
+    /**
+     * Runs one worker's part of the current phase, keeping any error for the calling thread
+     * @param worker the worker to run
+     */
+    private void work(SimThread worker){
+
+        try{
+            if(phase == RESOLVE){
+                worker.resolveDue();
+            } else if(phase == INFECT){
+                worker.runTick();
+            } else {
+                worker.compactFrontier();
+            }
+        } catch (RuntimeException e){
+            error = e;
+        }
+
+    }
+
+    /**
+     * Method to stop all worker threads. The pool cannot be used after it is shut down
+     */
+    public void shutdown(){
+
+        if(stopped){
+            return;
+        }
+        stopped = true;
+        // release the workers so they see the stopped flag and leave
+        phaser.arriveAndAwaitAdvance();
+        phaser.arriveAndDeregister();
+
+        for(int i = 1; i < workers.length; i++){
+            try{
+                workers[i].join();
+            } catch (InterruptedException e){
+                System.err.println("ERROR: THREAD " + i + " INTERRUPTED!");
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+
+    }
+
+}
@@ -0,0 +1,258 @@
+package main.java;
+
+import java.lang.management.ManagementFactory;
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * @author Aaron Zachariah
+ * Statistics of the last tick run by a TickExecutor, together with totals over every tick
+ * since the last reset. Each graph has its own TickStats, which the executor fills at the end
+ * of every tick. The statistics can be published as a JMX MBean with register().
+ *
+ * The infect and resolve times are added over all workers, so with several workers they can
+ * be larger than the wall time of the infect phase. The other phase times are wall times.
+ */
+public class TickStats implements TickStatsMBean {
+
+    /**
+     * Statistics of the last tick, times in nanoseconds
+     */
+    private int tick = 0;
+    private long tick_time = 0;
+    private long infect_phase_time = 0;
+    private long infect_time = 0;
+    private long resolve_time = 0;
+    private long merge_time = 0;
+    private long cleanup_time = 0;
+    private long[] busy_time = new long[0];
+    private double imbalance = 1.0;
+    private int frontier_size = 0;
+    private boolean pull = false;
+    private long attempted = 0;
+    private long failed = 0;
+    private long capped = 0;
+    private int new_infections = 0;
+    private long allocated = -1;
+
+    /**
+     * Totals since the last reset
+     */
+    private long total_ticks = 0;
+    private long total_time = 0;
+    private long total_allocated = 0;
+
+    /**
+     * Name the statistics are registered under, or null if they are not registered
+     */
+    private ObjectName name = null;
+
+    /**
+     * Records the statistics of a tick
+     * @param tick the tick that was run
+     * @param frontier_size number of infected nodes at the start of the tick
+     * @param pull whether the tick ran in pull mode
+     * @param tick_time wall time of the tick in nanoseconds
+     * @param infect_phase_time wall time of the resolve and infect phases in nanoseconds
+     * @param merge_time wall time between the phases and of merging the counters in nanoseconds
+     * @param cleanup_time wall time of rebuilding the frontier in nanoseconds
+     * @param workers workers which ran the tick
+     * @param allocated bytes allocated by the workers during the tick, or -1 if unknown
+     */
+    synchronized void record(int tick, int frontier_size, boolean pull, long tick_time, long infect_phase_time, long merge_time,
+        long cleanup_time, SimThread[] workers, long allocated){
+
+        this.tick = tick;
+        this.frontier_size = frontier_size;
+        this.pull = pull;
+        this.tick_time = tick_time;
+        this.infect_phase_time = infect_phase_time;
+        this.merge_time = merge_time;
+        this.cleanup_time = cleanup_time;
+        this.allocated = allocated;
+
+        if(busy_time.length != workers.length){
+            busy_time = new long[workers.length];
+        }
+        infect_time = 0;
+        resolve_time = 0;
+        attempted = 0;
+        failed = 0;
+        capped = 0;
+        new_infections = 0;
+        long busy_total = 0;
+        long busy_max = 0;
+        for(int w = 0; w < workers.length; w++){
+            SimThread worker = workers[w];
+            busy_time[w] = worker.busy_time;
+            busy_total += worker.busy_time;
+            busy_max = Math.max(busy_max, worker.busy_time);
+            infect_time += worker.infect_time;
+            resolve_time += worker.resolve_time;
+            attempted += worker.attempted;
+            failed += worker.failed;
+            capped += worker.capped;
+            new_infections += worker.updatedNodes.size();
+        }
+        imbalance = busy_total == 0 ? 1.0 : (double) busy_max * workers.length / busy_total;
+
+        total_ticks++;
+        total_time += tick_time;
+        if(allocated > 0){
+            total_allocated += allocated;
+        }
+
+    }
+
+    /**
+     * Copies the statistics of the last tick into a Flight Recorder event
+     * @param event the event to fill
+     */
+    synchronized void fill(TickEvent event){
+
+        event.tick = tick;
+        event.infectPhase = infect_phase_time;
+        event.infectTime = infect_time;
+        event.resolveTime = resolve_time;
+        event.merge = merge_time;
+        event.cleanup = cleanup_time;
+        event.workers = busy_time.length;
+        long busy_max = 0;
+        for(long busy : busy_time){
+            busy_max = Math.max(busy_max, busy);
+        }
+        event.maxBusy = busy_max;
+        event.imbalance = imbalance;
+        event.frontierSize = frontier_size;
+        event.pull = pull;
+        event.attempted = attempted;
+        event.failed = failed;
+        event.capped = capped;
+        event.newInfections = new_infections;
+        event.allocated = allocated;
+
+    }
+
+    /**
+     * Publishes the statistics as an MBean on the platform MBean server, under
+     * main.java:type=TickStats,name=[name]
+     * @param name name which tells this simulation apart from others in the same JVM
+     * @throws JMException exception thrown if the MBean cannot be registered
+     */
+    public synchronized void register(String name) throws JMException {
+
+        unregister();
+        ObjectName object_name = new ObjectName("main.java:type=TickStats,name=" + ObjectName.quote(name));
+        ManagementFactory.getPlatformMBeanServer().registerMBean(this, object_name);
+        this.name = object_name;
+
+    }
+
+    /**
+     * Removes the MBean published by register(), if there is one
+     */
+    public synchronized void unregister(){
+
+        if(name == null){
+            return;
+        }
+        try{
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(name);
+        } catch (JMException e){
+            // already gone
+        }
+        name = null;
+
+    }
+
+    public synchronized int getTick(){
+        return tick;
+    }
+
+    public synchronized double getTickMillis(){
+        return tick_time / 1e6;
+    }
+
+    public synchronized double getInfectPhaseMillis(){
+        return infect_phase_time / 1e6;
+    }
+
+    public synchronized double getInfectMillis(){
+        return infect_time / 1e6;
+    }
+
+    public synchronized double getResolveMillis(){
+        return resolve_time / 1e6;
+    }
+
+    public synchronized double getMergeMillis(){
+        return merge_time / 1e6;
+    }
+
+    public synchronized double getCleanupMillis(){
+        return cleanup_time / 1e6;
+    }
+
+    public synchronized int getWorkers(){
+        return busy_time.length;
+    }
+
+    public synchronized double[] getWorkerBusyMillis(){
+        double[] millis = new double[busy_time.length];
+        for(int w = 0; w < busy_time.length; w++){
+            millis[w] = busy_time[w] / 1e6;
+        }
+        return millis;
+    }
+
+    public synchronized double getImbalance(){
+        return imbalance;
+    }
+
+    public synchronized int getFrontierSize(){
+        return frontier_size;
+    }
+
+    public synchronized boolean isPull(){
+        return pull;
+    }
+
+    public synchronized long getInfectionsAttempted(){
+        return attempted;
+    }
+
+    public synchronized long getInfectionsFailed(){
+        return failed;
+    }
+
+    public synchronized long getNodesCapped(){
+        return capped;
+    }
+
+    public synchronized int getNewInfections(){
+        return new_infections;
+    }
+
+    public synchronized long getAllocatedBytes(){
+        return allocated;
+    }
+
+    public synchronized long getTotalTicks(){
+        return total_ticks;
+    }
+
+    public synchronized double getTotalMillis(){
+        return total_time / 1e6;
+    }
+
+    public synchronized long getTotalAllocatedBytes(){
+        return total_allocated;
+    }
+
+    public synchronized void reset(){
+        total_ticks = 0;
+        total_time = 0;
+        total_allocated = 0;
+    }
+
+}
@@ -0,0 +1,116 @@
+package main.java;
+
+/**
+ * @author Aaron Zachariah
+ * Management interface of TickStats, so the statistics of the ticks can be watched live
+ * with any JMX client, such as jconsole or VisualVM. Times are in milliseconds.
+ */
+public interface TickStatsMBean {
+
+    /**
+     * @return the last tick that was run
+     */
+    int getTick();
+
+    /**
+     * @return wall clock time of the last tick
+     */
+    double getTickMillis();
+
+    /**
+     * @return wall clock time of the resolve and infect phases of the last tick
+     */
+    double getInfectPhaseMillis();
+
+    /**
+     * @return time the workers spent infecting neighbors in the last tick, added over all workers
+     */
+    double getInfectMillis();
+
+    /**
+     * @return time the workers spent resolving the infections which ended in the last tick, added over all workers
+     */
+    double getResolveMillis();
+
+    /**
+     * @return wall clock time spent between the phases and merging the counters in the last tick
+     */
+    double getMergeMillis();
+
+    /**
+     * @return wall clock time spent rebuilding the frontier in the last tick
+     */
+    double getCleanupMillis();
+
+    /**
+     * @return number of workers which ran the last tick
+     */
+    int getWorkers();
+
+    /**
+     * @return busy time of each worker in the infect phase of the last tick
+     */
+    double[] getWorkerBusyMillis();
+
+    /**
+     * @return busy time of the slowest worker divided by the mean busy time, 1.0 is perfect balance
+     */
+    double getImbalance();
+
+    /**
+     * @return number of infected nodes at the start of the last tick
+     */
+    int getFrontierSize();
+
+    /**
+     * @return whether the last tick went through the edges into the susceptible nodes instead of
+     * the edges of the infected nodes
+     */
+    boolean isPull();
+
+    /**
+     * @return number of neighbors drawn to be infected in the last tick, or of edges drawn in pull mode
+     */
+    long getInfectionsAttempted();
+
+    /**
+     * @return number of draws in the last tick which picked a node another node had already infected
+     */
+    long getInfectionsFailed();
+
+    /**
+     * @return number of infected nodes in the last tick with fewer susceptible neighbors than their share
+     */
+    long getNodesCapped();
+
+    /**
+     * @return number of nodes infected in the last tick
+     */
+    int getNewInfections();
+
+    /**
+     * @return bytes allocated by the workers during the last tick, or -1 if the JVM cannot measure it
+     */
+    long getAllocatedBytes();
+
+    /**
+     * @return number of ticks recorded since the last reset
+     */
+    long getTotalTicks();
+
+    /**
+     * @return wall clock time of every tick recorded since the last reset
+     */
+    double getTotalMillis();
+
+    /**
+     * @return bytes allocated by the workers in every tick recorded since the last reset
+     */
+    long getTotalAllocatedBytes();
+
+    /**
+     * Clears the totals
+     */
+    void reset();
+
+}
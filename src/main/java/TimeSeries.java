@@ -0,0 +1,324 @@
+package main.java;
+
+/**
+ * @author Aaron Zachariah
+ * Columnar store of int statistics keyed by tick, such as the number of nodes in each state.
+ * Values are kept in primitive arrays, one per column, so nothing is boxed.
+ *
+ * The store can be given a memory cap. The most recent ticks are then kept at full resolution
+ * in a ring buffer, and older ticks are folded into buckets holding the min, max and mean of
+ * each column over a range of ticks. When every bucket is in use, neighboring buckets are merged
+ * in pairs and the width of new buckets doubles, so a run of any length fits in a fixed amount
+ * of memory. Without a cap every tick is kept at full resolution.
+ *
+ * Readers such as the Chart read the values in place through the getters. Recent ticks are
+ * indexed from 0 (oldest) to recentSize() - 1 (newest), and buckets from 0 (oldest) to
+ * bucketCount() - 1 (newest). Every bucket is older than every recent tick.
+ */
+public class TimeSeries {
+
+    /**
+     * Number of columns
+     */
+    private final int columns;
+
+    /**
+     * Largest number of recent ticks kept at full resolution, 0 for no cap
+     */
+    private final int recent_cap;
+
+    /**
+     * Largest number of buckets of older ticks
+     */
+    private final int bucket_cap;
+
+    /**
+     * Ring buffer of recent ticks and their values. Index 0 of the ring is at head
+     */
+    private int[] ticks;
+    private int[][] values;
+    private int head = 0;
+    private int recent_size = 0;
+
+    /**
+     * Buckets of older ticks: first and last tick, number of ticks and the min, max and sum of each column
+     */
+    private int[] bucket_first;
+    private int[] bucket_last;
+    private int[] bucket_count;
+    private int[][] bucket_min;
+    private int[][] bucket_max;
+    private long[][] bucket_sum;
+    private int buckets = 0;
+
+    /**
+     * Number of ticks folded into each new bucket
+     */
+    private int bucket_width = 1;
+
+    /**
+     * Total number of ticks added
+     */
+    private long size = 0;
+
+    /**
+     * Constructor for a store which keeps every tick at full resolution
+     * @param columns number of columns
+     */
+    public TimeSeries(int columns){
+        this(columns, 0, 0);
+    }
+
+    /**
+     * Constructor for a store with a memory cap
+     * @param columns number of columns
+     * @param recent_cap number of recent ticks kept at full resolution, 0 for no cap
+     * @param bucket_cap number of buckets for older ticks, must be at least 2 when there is a cap
+     */
+    public TimeSeries(int columns, int recent_cap, int bucket_cap){
+
+        if(recent_cap > 0 && bucket_cap < 2){
+            throw new IllegalArgumentException("A capped TimeSeries needs at least 2 buckets");
+        }
+        this.columns = columns;
+        this.recent_cap = recent_cap;
+        this.bucket_cap = recent_cap > 0 ? bucket_cap : 0;
+
+        int capacity = recent_cap > 0 ? recent_cap : 16;
+        ticks = new int[capacity];
+        values = new int[columns][capacity];
+
+        bucket_first = new int[this.bucket_cap];
+        bucket_last = new int[this.bucket_cap];
+        bucket_count = new int[this.bucket_cap];
+        bucket_min = new int[columns][this.bucket_cap];
+        bucket_max = new int[columns][this.bucket_cap];
+        bucket_sum = new long[columns][this.bucket_cap];
+
+    }
+
+    /**
+     * Adds the values of a tick, which should be after every tick already added
+     * @param tick the tick
+     * @param row one value per column
+     */
+    public void add(int tick, int[] row){
+
+        if(recent_cap > 0 && recent_size == recent_cap){
+            // fold the oldest recent tick into the buckets to make room
+            evict();
+        } else if(recent_size == ticks.length){
+            grow();
+        }
+
+        int pos = (head + recent_size) % ticks.length;
+        ticks[pos] = tick;
+        for(int c = 0; c < columns; c++){
+            values[c][pos] = row[c];
+        }
+        recent_size++;
+        size++;
+
+    }
+
+    /**
+     * Doubles the size of the ring buffer of a store without a cap
+     */
+    private void grow(){
+
+        int capacity = ticks.length * 2;
+        int[] new_ticks = new int[capacity];
+        for(int k = 0; k < recent_size; k++){
+            new_ticks[k] = ticks[(head + k) % ticks.length];
+        }
+        for(int c = 0; c < columns; c++){
+            int[] column = new int[capacity];
+            for(int k = 0; k < recent_size; k++){
+                column[k] = values[c][(head + k) % ticks.length];
+            }
+            values[c] = column;
+        }
+        ticks = new_ticks;
+        head = 0;
+
+    }
+
+    /**
+     * Moves the oldest recent tick into the newest bucket
+     */
+    private void evict(){
+
+        if(buckets == 0 || bucket_count[buckets - 1] == bucket_width){
+            if(buckets == bucket_cap){
+                mergeBuckets();
+            }
+            int b = buckets++;
+            bucket_first[b] = ticks[head];
+            bucket_count[b] = 0;
+            for(int c = 0; c < columns; c++){
+                bucket_min[c][b] = Integer.MAX_VALUE;
+                bucket_max[c][b] = Integer.MIN_VALUE;
+                bucket_sum[c][b] = 0;
+            }
+        }
+
+        int b = buckets - 1;
+        bucket_last[b] = ticks[head];
+        bucket_count[b]++;
+        for(int c = 0; c < columns; c++){
+            int value = values[c][head];
+            bucket_min[c][b] = Math.min(bucket_min[c][b], value);
+            bucket_max[c][b] = Math.max(bucket_max[c][b], value);
+            bucket_sum[c][b] += value;
+        }
+
+        head = (head + 1) % ticks.length;
+        recent_size--;
+
+    }
+
+    /**
+     * Merges the buckets in pairs and doubles the width of new buckets
+     */
+    private void mergeBuckets(){
+
+        int merged = 0;
+        for(int b = 0; b < buckets; b += 2){
+            int other = Math.min(b + 1, buckets - 1);
+            bucket_first[merged] = bucket_first[b];
+            bucket_last[merged] = bucket_last[other];
+            bucket_count[merged] = bucket_count[b] + (other == b ? 0 : bucket_count[other]);
+            for(int c = 0; c < columns; c++){
+                bucket_min[c][merged] = Math.min(bucket_min[c][b], bucket_min[c][other]);
+                bucket_max[c][merged] = Math.max(bucket_max[c][b], bucket_max[c][other]);
+                bucket_sum[c][merged] = bucket_sum[c][b] + (other == b ? 0 : bucket_sum[c][other]);
+            }
+            merged++;
+        }
+        buckets = merged;
+        bucket_width *= 2;
+
+    }
+
+    /**
+     * Removes every tick from the store
+     */
+    public void clear(){
+
+        head = 0;
+        recent_size = 0;
+        buckets = 0;
+        bucket_width = 1;
+        size = 0;
+
+    }
+
+    /**
+     * columns getter
+     * @return number of columns
+     */
+    public int getColumns(){
+        return columns;
+    }
+
+    /**
+     * size getter
+     * @return total number of ticks added, including the ones folded into buckets
+     */
+    public long size(){
+        return size;
+    }
+
+    /**
+     * recent size getter
+     * @return number of ticks kept at full resolution
+     */
+    public int recentSize(){
+        return recent_size;
+    }
+
+    /**
+     * Getter for a recent tick
+     * @param k index of the tick, 0 for the oldest recent tick
+     * @return the tick
+     */
+    public int recentTick(int k){
+        return ticks[(head + k) % ticks.length];
+    }
+
+    /**
+     * Getter for a value of a recent tick
+     * @param column the column
+     * @param k index of the tick, 0 for the oldest recent tick
+     * @return the value
+     */
+    public int recentValue(int column, int k){
+        return values[column][(head + k) % ticks.length];
+    }
+
+    /**
+     * Getter for a value of the newest tick
+     * @param column the column
+     * @return the value
+     */
+    public int latest(int column){
+        return recentValue(column, recent_size - 1);
+    }
+
+    /**
+     * bucket count getter
+     * @return number of buckets of older ticks
+     */
+    public int bucketCount(){
+        return buckets;
+    }
+
+    /**
+     * Getter for the first tick of a bucket
+     * @param b index of the bucket, 0 for the oldest
+     * @return the tick
+     */
+    public int bucketFirst(int b){
+        return bucket_first[b];
+    }
+
+    /**
+     * Getter for the last tick of a bucket
+     * @param b index of the bucket, 0 for the oldest
+     * @return the tick
+     */
+    public int bucketLast(int b){
+        return bucket_last[b];
+    }
+
+    /**
+     * Getter for the smallest value of a column in a bucket
+     * @param column the column
+     * @param b index of the bucket, 0 for the oldest
+     * @return the smallest value
+     */
+    public int bucketMin(int column, int b){
+        return bucket_min[column][b];
+    }
+
+    /**
+     * Getter for the largest value of a column in a bucket
+     * @param column the column
+     * @param b index of the bucket, 0 for the oldest
+     * @return the largest value
+     */
+    public int bucketMax(int column, int b){
+        return bucket_max[column][b];
+    }
+
+    /**
+     * Getter for the mean value of a column in a bucket
+     * @param column the column
+     * @param b index of the bucket, 0 for the oldest
+     * @return the mean value
+     */
+    public double bucketMean(int column, int b){
+        return (double) bucket_sum[column][b] / bucket_count[b];
+    }
+
+}
@@ -0,0 +1,128 @@
+package main.java;
+
+/**
+ * @author Aaron Zachariah
+ * Timing wheel holding the infected nodes by the tick their infection ends. The wheel is a
+ * ring of buckets, one per tick, and a node due at a tick goes into the bucket of that tick
+ * modulo the number of buckets. There are always more buckets than ticks between the current
+ * tick and the furthest due tick, so each bucket only ever holds the nodes of a single tick.
+ * The ring doubles when a node is added further ahead than it can hold.
+ *
+ * Adding a node and taking the nodes due at a tick cost nothing for the nodes which are not
+ * due, so the infected nodes do not have to be visited every tick just to count down their time.
+ */
+public class TimingWheel {
+
+    /**
+     * Buckets of the ring. The length is a power of two
+     */
+    private IntList[] buckets;
+
+    /**
+     * Earliest tick which can still be due. Nodes added for earlier ticks are due at this tick
+     */
+    private int current = 0;
+
+    /**
+     * Number of nodes in the wheel
+     */
+    private int size = 0;
+
+    /**
+     * List returned by the last call to take(), reused as a bucket by the next one
+     */
+    private IntList spare = new IntList();
+
+    /**
+     * TimingWheel constructor
+     */
+    public TimingWheel(){
+
+        buckets = new IntList[16];
+        for(int b = 0; b < buckets.length; b++){
+            buckets[b] = new IntList();
+        }
+
+    }
+
+    /**
+     * Adds a node which is due at a tick
+     * @param u id of the node
+     * @param tick the tick
+     */
+    public void add(int u, int tick){
+
+        tick = Math.max(tick, current);
+        while(tick - current >= buckets.length){
+            grow();
+        }
+        buckets[tick & (buckets.length - 1)].add(u);
+        size++;
+
+    }
+
+    /**
+     * Takes the nodes due at a tick out of the wheel. Every earlier tick must have been taken first.
+     * The returned list stays valid until the next call to take(), even if nodes are added meanwhile
+     * @param tick the tick
+     * @return ids of the nodes due at the tick
+     */
+    public IntList take(int tick){
+
+        // put the emptied list of the last take in place of the bucket handed out
+        int b = tick & (buckets.length - 1);
+        IntList due = buckets[b];
+        spare.clear();
+        buckets[b] = spare;
+        spare = due;
+        size -= due.size();
+        current = tick + 1;
+        return due;
+
+    }
+
+    /**
+     * Doubles the number of buckets, moving every node to the bucket of its tick in the larger ring
+     */
+    private void grow(){
+
+        IntList[] old = buckets;
+        buckets = new IntList[old.length * 2];
+        for(int b = 0; b < buckets.length; b++){
+            buckets[b] = new IntList();
+        }
+        // the bucket of current holds its tick, and the following buckets the following ticks
+        for(int k = 0; k < old.length; k++){
+            int tick = current + k;
+            IntList bucket = old[tick & (old.length - 1)];
+            IntList target = buckets[tick & (buckets.length - 1)];
+            for(int i = 0; i < bucket.size(); i++){
+                target.add(bucket.get(i));
+            }
+        }
+
+    }
+
+    /**
+     * Removes every node and starts the wheel again at a tick
+     * @param tick the earliest tick which can be due
+     */
+    public void clear(int tick){
+
+        for(IntList bucket : buckets){
+            bucket.clear();
+        }
+        current = tick;
+        size = 0;
+
+    }
+
+    /**
+     * size getter
+     * @return number of nodes in the wheel
+     */
+    public int size(){
+        return size;
+    }
+
+}
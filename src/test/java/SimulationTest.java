@@ -1,9 +1,58 @@
 package test.java;
 
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+import javax.swing.JPanel;
+
+import org.jfree.chart.axis.ValueAxis;
+
 import main.java.*;
 
 public class SimulationTest {
 
+    /**
+     * Writes text to a new temporary file, removed when the tests finish
+     * @param text contents of the file
+     * @return the file
+     * @throws IOException exception thrown on IO error when writing the file
+     */
+    private static File writeTemp(String text) throws IOException {
+        File file = File.createTempFile("simulation-test", ".txt");
+        file.deleteOnExit();
+        new File(file.getPath() + GraphSnapshot.EXTENSION).deleteOnExit();
+        Files.write(file.toPath(), text.getBytes(StandardCharsets.UTF_8));
+        return file;
+    }
+
+    /**
+     * Checks if two graphs have the same names, ids and edges
+     * @param a the first graph
+     * @param b the second graph
+     * @return true if the graphs are the same
+     */
+    private static boolean sameGraph(Graph a, Graph b){
+        a.freeze();
+        b.freeze();
+        if(a.size() != b.size()){
+            return false;
+        }
+        for(int u = 0; u < a.size(); u++){
+            if(!a.nodes.get(u).name.equals(b.nodes.get(u).name)){
+                return false;
+            }
+        }
+        return Arrays.equals(a.csr.offsets, b.csr.offsets) && Arrays.equals(a.csr.neighbors, b.csr.neighbors);
+    }
+
     public void testNodeConstructor(){
         Node n = new Node("A");
         if(n.name.equals("A")){
@@ -123,8 +172,865 @@ public class SimulationTest {
     }
 
 
+    public void testNodeStateView(){
+
+        Graph g = new Graph();
+        g.addEdge(new Node("A"), new Node("B"), "");
+        g.s_infected = 0;
+        g.infectDegree();
+
+        Node a = g.nodes.get(g.ids.get("A"));
+        Node b = g.nodes.get(g.ids.get("B"));
+        if(a.status().equals("i") && b.status().equals("s") && g.state[a.id] == Node.INFECTED){
+            System.out.println("Node State View Passed");
+        } else {
+            System.out.println("Node State View Failed");
+        }
+
+    }
+
+    public void testReplicateState(){
+
+        Graph g = new Graph();
+        g.addEdge(new Node("A"), new Node("B"), "");
+        Graph r = g.replicate();
+        r.s_infected = 0;
+        r.infectDegree();
+
+        if(r.csr == g.csr && r.getInfected() == 1 && g.getInfected() == 0 && g.state[0] == Node.SUSCEPTIBLE){
+            System.out.println("Replicate State Passed");
+        } else {
+            System.out.println("Replicate State Failed");
+        }
+
+    }
+
+    public void testSeedThreadInvariance(){
+
+        // ring of 200 nodes, each also linked to the node 7 places ahead
+        Graph one = new Graph();
+        for(int i = 0; i < 200; i++){
+            one.addEdge(new Node("N" + i), new Node("N" + ((i + 1) % 200)), "");
+            one.addEdge(new Node("N" + i), new Node("N" + ((i + 7) % 200)), "");
+        }
+        one.seed = 42;
+        Graph four = one.replicate();
+        four.num_threads = 4;
+
+        one.infectRandom();
+        four.infectRandom();
+        for(int i = 0; i < 10; i++){
+            one.nextTick();
+            four.nextTick();
+        }
+        four.shutdown();
+
+        if(Arrays.equals(one.state, four.state) && one.getInfected() == four.getInfected()
+            && one.dead == four.dead){
+            System.out.println("Seed Thread Invariance Passed");
+        } else {
+            System.out.println("Seed Thread Invariance Failed");
+        }
+
+    }
+
+    public void testChartAddTick(){
+
+        TimeSeries data = new TimeSeries(4);
+        Chart c = new Chart(new JPanel(), data);
+        for(int tick = 0; tick < 100; tick++){
+            data.add(tick, new int[]{100 - tick, tick, 0, 0});
+        }
+        c.update();
+
+        ValueAxis axis = c.chart.getXYPlot().getDomainAxis();
+        if(c.dataset.getItemCount(0) == 100 && axis.getUpperBound() >= 99){
+            System.out.println("Chart Add Tick Passed");
+        } else {
+            System.out.println("Chart Add Tick Failed");
+        }
+
+    }
+
+    public void testTimeSeriesCap(){
+
+        TimeSeries data = new TimeSeries(1, 10, 4);
+        for(int tick = 0; tick < 1000; tick++){
+            data.add(tick, new int[]{tick});
+        }
+
+        // the 990 older ticks are folded into at most 4 buckets covering every one of them
+        int buckets = data.bucketCount();
+        if(data.size() == 1000 && data.recentSize() == 10 && data.recentTick(0) == 990 && buckets <= 4
+            && data.bucketFirst(0) == 0 && data.bucketLast(buckets - 1) == 989
+            && data.bucketMin(0, 0) == 0 && data.bucketMax(0, buckets - 1) == 989){
+            System.out.println("Time Series Cap Passed");
+        } else {
+            System.out.println("Time Series Cap Failed");
+        }
+
+    }
+
+    public void testTickStats(){
+
+        Graph g = new Graph();
+        for(int i = 0; i < 50; i++){
+            g.addEdge(new Node("N" + i), new Node("N" + ((i + 1) % 50)), "");
+        }
+        g.n_infected = 5;
+        g.infectRandom();
+        g.nextTick();
+
+        TickStats stats = g.stats;
+        if(stats.getTotalTicks() == 1 && stats.getFrontierSize() == 5 && stats.getWorkers() == 1
+            && stats.getInfectionsAttempted() >= stats.getInfectionsFailed()
+            && stats.getNewInfections() == 45 - g.susceptible){
+            System.out.println("Tick Stats Passed");
+        } else {
+            System.out.println("Tick Stats Failed");
+        }
+
+    }
+
+    public void testEventEngine(){
+
+        Graph g = new Graph();
+        for(int i = 0; i < 100; i++){
+            g.addEdge(new Node("N" + i), new Node("N" + ((i + 1) % 100)), "");
+            g.addEdge(new Node("N" + i), new Node("N" + ((i + 3) % 100)), "");
+        }
+        g.seed = 7;
+        g.engine = "event";
+        Graph copy = g.replicate();
+        g.infectRandom();
+        copy.infectRandom();
+
+        // the counts and the frontier stay consistent, and every infection ends within t ticks of the last new infection
+        boolean counted = true;
+        int last_infection = 0;
+        while(g.getInfected() > 0 && g.tick < 1000){
+            int susceptible = g.susceptible;
+            g.nextTick();
+            copy.nextTick();
+            if(g.susceptible < susceptible){
+                last_infection = g.tick;
+            }
+            counted &= g.susceptible + g.infected + g.recovered + g.dead == 100
+                && g.frontier_size == g.infected;
+        }
+
+        if(g.getInfected() == 0 && counted && g.getSusceptible() < 97 && g.tick <= last_infection + g.t
+            && Arrays.equals(g.state, copy.state)){
+            System.out.println("Event Engine Passed");
+        } else {
+            System.out.println("Event Engine Failed");
+        }
+
+    }
+
+    public void testEngineRecoveryTick(){
+
+        // without infections both engines recover the seeds on the same tick
+        boolean same = true;
+        for(int t = 1; t <= 3; t++){
+            int[] ends = new int[2];
+            String[] engines = {"tick", "event"};
+            for(int e = 0; e < engines.length; e++){
+                Graph g = new Graph();
+                for(int i = 0; i < 10; i++){
+                    g.addEdge(new Node("N" + i), new Node("N" + ((i + 1) % 10)), "");
+                }
+                g.engine = engines[e];
+                g.lambda = 0;
+                g.t = t;
+                g.n_infected = 3;
+                g.seed = 1;
+                g.infectRandom();
+                while(g.infected > 0 && g.tick < 20){
+                    g.nextTick();
+                }
+                g.shutdown();
+                ends[e] = g.tick;
+            }
+            same &= ends[0] == t && ends[1] == t;
+        }
+
+        if(same){
+            System.out.println("Engine Recovery Tick Passed");
+        } else {
+            System.out.println("Engine Recovery Tick Failed");
+        }
+
+    }
+
+    public void testTimingWheel(){
+
+        TimingWheel wheel = new TimingWheel();
+        wheel.add(1, 3);
+        wheel.add(2, 3);
+        wheel.add(3, 100);
+        IntList first = wheel.take(0);
+        wheel.take(1);
+        wheel.take(2);
+        IntList due = wheel.take(3);
+
+        // the wheel grew to hold tick 100 without losing the nodes due at tick 3
+        if(first.size() == 0 && due.size() == 2 && due.get(0) == 1 && due.get(1) == 2 && wheel.size() == 1){
+            System.out.println("Timing Wheel Passed");
+        } else {
+            System.out.println("Timing Wheel Failed");
+        }
+
+    }
+
+    public void testSusceptibleNeighbors(){
+
+        Graph g = new Graph();
+        for(int i = 0; i < 300; i++){
+            g.addEdge(new Node("N" + i), new Node("N" + ((i + 1) % 300)), "");
+            g.addEdge(new Node("N" + i), new Node("N" + ((i * 7) % 300)), "");
+        }
+        g.num_threads = 3;
+        g.infectRandom();
+        for(int i = 0; i < 5; i++){
+            g.nextTick();
+        }
+        g.shutdown();
+
+        // the counts kept during the ticks match a count from scratch
+        boolean matches = true;
+        for(int u = 0; u < g.size(); u++){
+            int count = 0;
+            for(int j = g.csr.offsets[u]; j < g.csr.offsets[u + 1]; j++){
+                if(g.state[g.csr.neighbors[j]] == Node.SUSCEPTIBLE){
+                    count++;
+                }
+            }
+            matches &= g.susceptible_neighbors[u] == count;
+        }
+
+        if(matches && g.getSusceptible() < 297){
+            System.out.println("Susceptible Neighbors Passed");
+        } else {
+            System.out.println("Susceptible Neighbors Failed");
+        }
+
+    }
+
+    public void testQuotaClosedForm(){
+
+        // the shares of any run of nodes add up to their rounded share of lambda
+        boolean sums = true;
+        for(double lambda : new double[]{0.3, 1.25, 2.5}){
+            int total = 0;
+            for(int i = 0; i < 1000; i++){
+                total += SimThread.quota(lambda, i);
+                sums &= total == (int) Math.floor(lambda * (i + 1) + 0.5);
+            }
+        }
+
+        // binomial draws average out to n * p
+        RandomStream rand = new RandomStream(11);
+        long total = 0;
+        for(int i = 0; i < 10000; i++){
+            total += rand.nextBinomial(20, 0.1);
+        }
+        double mean = total / 10000.0;
+
+        if(sums && Math.abs(mean - 2.0) < 0.1 && rand.nextBinomial(5, 1.0) == 5 && rand.nextBinomial(5, 0.0) == 0){
+            System.out.println("Quota Closed Form Passed");
+        } else {
+            System.out.println("Quota Closed Form Failed");
+        }
+
+    }
+
+    public void testBinomialLargeMean(){
+
+        // means far above what a single walk from (1 - p)^n could reach
+        RandomStream rand = new RandomStream(9);
+        double[][] cases = {{100000, 0.3}, {1000, 0.9}, {5000, 0.01}};
+        boolean close = true;
+        for(double[] c : cases){
+            int n = (int) c[0];
+            double sum = 0;
+            int draws = 400;
+            for(int i = 0; i < draws; i++){
+                int x = rand.nextBinomial(n, c[1]);
+                close &= x >= 0 && x <= n;
+                sum += x;
+            }
+            // within six standard errors of the mean
+            double error = 6 * Math.sqrt(n * c[1] * (1 - c[1]) / draws);
+            close &= Math.abs(sum / draws - n * c[1]) < error;
+        }
+
+        if(close){
+            System.out.println("Binomial Large Mean Passed");
+        } else {
+            System.out.println("Binomial Large Mean Failed");
+        }
+
+    }
+
+    public void testNeighborSampling(){
+
+        // hub with 20 leaves, which has to infect 5 of them every tick
+        Graph g = new Graph();
+        for(int i = 0; i < 20; i++){
+            g.addEdge(new Node("H"), new Node("L" + i), "");
+        }
+        g.s_infected = 1;
+        g.lambda = 5;
+        g.infectDegree();
+        g.nextTick();
+        int first = g.getSusceptible();
+        g.nextTick();
+
+        // every draw lands on a different susceptible leaf, even once a quarter of them are infected
+        TickStats stats = g.stats;
+        if(first == 15 && g.getSusceptible() == 10 && stats.getInfectionsAttempted() == 5
+            && stats.getInfectionsFailed() == 0 && stats.getNodesCapped() == 0){
+            System.out.println("Neighbor Sampling Passed");
+        } else {
+            System.out.println("Neighbor Sampling Failed");
+        }
+
+    }
 
+    public void testPushPull(){
 
+        // 2000 nodes with 8 edges each, infected with a high force of infection
+        Graph one = new Graph();
+        for(int i = 0; i < 2000; i++){
+            for(int k = 1; k <= 8; k++){
+                one.addEdge(new Node("N" + i), new Node("N" + ((i * 31 + k * 97) % 2000)), "");
+            }
+        }
+        one.seed = 3;
+        one.lambda = 4;
+        one.transmission = "binomial";
+        Graph four = one.replicate();
+        four.num_threads = 4;
+        one.infectRandom();
+        four.infectRandom();
+
+        // the ticks around the peak run in pull mode, and give the same run on any number of threads
+        boolean pulled = false;
+        boolean same = true;
+        while(one.getInfected() > 0 && one.tick < 100){
+            one.nextTick();
+            four.nextTick();
+            pulled |= one.stats.isPull();
+            same &= Arrays.equals(one.state, four.state) && one.susceptible_edges == four.susceptible_edges;
+        }
+        four.shutdown();
+
+        if(pulled && same && one.getSusceptible() < 1000 && one.susceptible_edges >= 0){
+            System.out.println("Push Pull Passed");
+        } else {
+            System.out.println("Push Pull Failed");
+        }
+
+    }
+
+    public void testLoaderSeparators(){
+
+        try{
+            // CRLF line ends, every separator and runs of them, a node without neighbors and a blank last line
+            File text = writeTemp("A B,C\r\nB;C|D\r\nC  D , A\r\nD\r\nE|A\r\n\r\n");
+            Graph g = new Graph();
+            new GraphLoader(g).load(text.getPath(), 1);
+            g.freeze();
+
+            String names = "";
+            for(Node n : g.getNodes()){
+                names += n.name;
+            }
+            if(names.equals("ABCDE") && Arrays.equals(g.csr.offsets, new int[]{0, 2, 4, 6, 6, 7})
+                && Arrays.equals(g.csr.neighbors, new int[]{1, 2, 2, 3, 3, 0, 0})){
+                System.out.println("Loader Separators Passed");
+            } else {
+                System.out.println("Loader Separators Failed");
+            }
+        } catch (IOException e){
+            System.out.println("Loader Separators Failed");
+        }
+
+    }
+
+    public void testLoaderChunks(){
+
+        try{
+            // lines of different lengths, so chunk boundaries fall in the middle of lines
+            String[] separators = {" ", ",", ";", "|", " , ", "||"};
+            StringBuilder builder = new StringBuilder();
+            for(int i = 0; i < 300; i++){
+                builder.append("N").append(i);
+                for(int k = 1; k <= i % 5; k++){
+                    builder.append(separators[(i + k) % separators.length]).append("N").append((i * 13 + k * 7) % 300);
+                }
+                builder.append(i % 3 == 0 ? "\r\n" : "\n");
+            }
+            builder.append("\n");
+            File text = writeTemp(builder.toString());
+
+            Graph one = new Graph();
+            new GraphLoader(one).load(text.getPath(), 1);
+            boolean same = one.size() > 0;
+            for(int chunks : new int[]{2, 7, 64, 500}){
+                Graph many = new Graph();
+                new GraphLoader(many).load(text.getPath(), chunks);
+                same &= sameGraph(one, many);
+            }
+
+            if(same){
+                System.out.println("Loader Chunks Passed");
+            } else {
+                System.out.println("Loader Chunks Failed");
+            }
+        } catch (IOException e){
+            System.out.println("Loader Chunks Failed");
+        }
+
+    }
+
+    public void testSnapshotRoundTrip(){
+
+        try{
+            File text = writeTemp("A B,C\nB C\nC A D\n");
+            Graph g = new Graph();
+            g.buildGraph(text.getPath());
+            File snapshot = File.createTempFile("simulation-test", GraphSnapshot.EXTENSION);
+            snapshot.deleteOnExit();
+            GraphSnapshot.write(g, snapshot.getPath());
+
+            Graph copy = new Graph();
+            copy.buildGraph(snapshot.getPath());
+
+            // point the first neighbor past the last node, which must be refused when read
+            RandomAccessFile file = new RandomAccessFile(snapshot, "rw");
+            file.seek(44 + 4 * (g.size() + 1));
+            file.write(new byte[]{100, 0, 0, 0});
+            file.close();
+            boolean refused = false;
+            try{
+                new Graph().buildGraph(snapshot.getPath());
+            } catch (IOException e){
+                refused = true;
+            }
+
+            if(sameGraph(g, copy) && copy.load_report.startsWith("Read snapshot") && refused){
+                System.out.println("Snapshot Round Trip Passed");
+            } else {
+                System.out.println("Snapshot Round Trip Failed");
+            }
+        } catch (IOException e){
+            System.out.println("Snapshot Round Trip Failed");
+        }
+
+    }
+
+    public void testSnapshotStale(){
+
+        try{
+            // loading does not write a snapshot unless asked to
+            File text = writeTemp("A B\nB C\n");
+            File snapshot = new File(text.getPath() + GraphSnapshot.EXTENSION);
+            new Graph().buildGraph(text.getPath());
+            boolean default_off = !snapshot.exists();
+
+            Graph first = new Graph();
+            first.write_snapshot = true;
+            first.buildGraph(text.getPath());
+            Graph cached = new Graph();
+            cached.buildGraph(text.getPath());
+
+            // replace the file with a larger one which looks older, as cp -p would
+            long modified = text.lastModified();
+            Files.write(text.toPath(), "A B\nB C\nC D E\n".getBytes(StandardCharsets.UTF_8));
+            text.setLastModified(modified - 60000);
+            Graph reloaded = new Graph();
+            reloaded.buildGraph(text.getPath());
+
+            if(default_off && snapshot.exists() && cached.load_report.startsWith("Read snapshot") && cached.size() == 3
+                && reloaded.size() == 5 && !reloaded.load_report.startsWith("Read snapshot")){
+                System.out.println("Snapshot Stale Passed");
+            } else {
+                System.out.println("Snapshot Stale Failed");
+            }
+        } catch (IOException e){
+            System.out.println("Snapshot Stale Failed");
+        }
+
+    }
+
+    public void testSnapshotDuplicateName(){
+
+        try{
+            File text = writeTemp("A B,C\nB C\nC A D\n");
+            Graph g = new Graph();
+            g.write_snapshot = true;
+            g.buildGraph(text.getPath());
+
+            // the names are stored last, in id order, so this renames D to A
+            File snapshot = new File(text.getPath() + GraphSnapshot.EXTENSION);
+            RandomAccessFile file = new RandomAccessFile(snapshot, "rw");
+            file.seek(file.length() - 1);
+            file.write('A');
+            file.close();
+
+            boolean refused = false;
+            Graph empty = new Graph();
+            try{
+                GraphSnapshot.read(empty, snapshot.getPath());
+            } catch (IOException e){
+                refused = true;
+            }
+
+            // the graph is left empty, so loading falls back to the text file
+            Graph rebuilt = new Graph();
+            rebuilt.buildGraph(text.getPath());
+
+            if(refused && empty.size() == 0 && !rebuilt.load_report.startsWith("Read snapshot") && sameGraph(g, rebuilt)){
+                System.out.println("Snapshot Duplicate Name Passed");
+            } else {
+                System.out.println("Snapshot Duplicate Name Failed");
+            }
+        } catch (IOException e){
+            System.out.println("Snapshot Duplicate Name Failed");
+        }
+
+    }
+
+    public void testRunnerToExtinction(){
+
+        Graph g = new Graph();
+        for(int i = 0; i < 50; i++){
+            g.addEdge(new Node("N" + i), new Node("N" + ((i + 1) % 50)), "");
+        }
+        g.infectRandom();
+
+        SimulationRunner runner = new SimulationRunner(g);
+        runner.start(0);
+        try{
+            while(runner.isRunning()){
+                Thread.sleep(1);
+            }
+        } catch (InterruptedException e){
+            Thread.currentThread().interrupt();
+        }
+        IntList rows = new IntList();
+        int ticks = runner.drain(rows);
+        runner.shutdown();
+
+        if(g.infected == 0 && ticks == g.tick && rows.get(rows.size() - SimulationRunner.ROW) == g.tick){
+            System.out.println("Runner To Extinction Passed");
+        } else {
+            System.out.println("Runner To Extinction Failed");
+        }
+
+    }
+
+    public void testBatchArguments(){
+
+        String[][] invalid = {
+            {"--ticks", "5"},
+            {"--graph", "g.txt", "--ticks"},
+            {"--graph", "g.txt", "--ticks", "-1"},
+            {"--graph", "g.txt", "--ticks", "ten"},
+            {"--graph", "g.txt", "--threads", "0"},
+            {"--graph", "g.txt", "--d", "1.5"},
+            {"--graph", "g.txt", "--lambda", "0"},
+            {"--graph", "g.txt", "--engine", "fast"},
+            {"--graph", "g.txt", "--snapshot", "yes"},
+            {"--graph", "g.txt", "--seed", "nearest"},
+            {"--graph", "g.txt", "--design", "random"},
+            {"--graph", "g.txt", "--sweep", "lambda=1;q=2"},
+            {"--graph", "g.txt", "--color", "red"}
+        };
+        int rejected = 0;
+        for(String[] args : invalid){
+            try{
+                new BatchRunner().parse(args);
+            } catch (IllegalArgumentException e){
+                rejected++;
+            }
+        }
+
+        boolean accepted = true;
+        try{
+            new BatchRunner().parse(new String[]{"--graph", "g.txt", "--seed", "bfs", "--ticks", "0", "--threads", "2",
+                "--engine", "event", "--transmission", "binomial", "--d", "0.5", "--t", "3", "--lambda", "1.5",
+                "--snapshot", "on", "--sweep", "lambda=1,2", "--design", "lhs", "--samples", "4"});
+        } catch (IllegalArgumentException e){
+            accepted = false;
+        }
+
+        if(rejected == invalid.length && accepted){
+            System.out.println("Batch Arguments Passed");
+        } else {
+            System.out.println("Batch Arguments Failed");
+        }
+
+    }
+
+    public void testBatchRun(){
+
+        try{
+            StringBuilder builder = new StringBuilder();
+            for(int i = 0; i < 100; i++){
+                builder.append("N").append(i).append(' ').append("N").append((i + 1) % 100).append('\n');
+            }
+            File text = writeTemp(builder.toString());
+            File csv = File.createTempFile("simulation-test", ".csv");
+            csv.deleteOnExit();
+
+            // a locale with a decimal comma must not change the CSV
+            Locale locale = Locale.getDefault();
+            Locale.setDefault(Locale.GERMANY);
+            int code;
+            try{
+                code = BatchRunner.run(new String[]{"--graph", text.getPath(), "--out", csv.getPath(), "--ticks", "20",
+                    "--random-seed", "3", "--n", "2", "--t", "2", "--lambda", "2"});
+            } finally{
+                Locale.setDefault(locale);
+            }
+            List<String> lines = Files.readAllLines(csv.toPath(), StandardCharsets.UTF_8);
+
+            // one row per tick from 0, and every node is in exactly one state
+            boolean valid = code == 0 && lines.size() >= 2 && lines.size() <= 22
+                && lines.get(0).equals("tick,susceptible,infected,recovered,dead,tick_ms");
+            for(int r = 1; valid && r < lines.size(); r++){
+                String[] row = lines.get(r).split(",");
+                valid = row.length == 6 && Integer.parseInt(row[0]) == r - 1
+                    && Integer.parseInt(row[1]) + Integer.parseInt(row[2]) + Integer.parseInt(row[3]) + Integer.parseInt(row[4]) == 100;
+            }
+            String[] first = lines.get(1).split(",");
+            String[] last = lines.get(lines.size() - 1).split(",");
+            valid &= first[2].equals("2") && (last[2].equals("0") || last[0].equals("20"));
+
+            if(valid){
+                System.out.println("Batch Run Passed");
+            } else {
+                System.out.println("Batch Run Failed");
+            }
+        } catch (IOException e){
+            System.out.println("Batch Run Failed");
+        }
+
+    }
+
+    /**
+     * Runs a sweep for up to 10 ticks per run and reads its results table
+     * @param sweep the sweep, whose values are set
+     * @return the rows of the table without the header, split into columns
+     * @throws InterruptedException exception thrown if the thread is interrupted while waiting for the runs
+     */
+    private static String[][] sweepRows(Sweep sweep) throws InterruptedException {
+        sweep.max_ticks = 10;
+        sweep.num_threads = 3;
+        sweep.run();
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        sweep.write(new PrintStream(bytes));
+        String[] lines = bytes.toString().trim().split("\\r?\\n");
+        String[][] rows = new String[lines.length - 1][];
+        for(int r = 1; r < lines.length; r++){
+            rows[r - 1] = lines[r].split(",");
+        }
+        return rows;
+    }
+
+    /**
+     * Builds a ring of 60 nodes for the sweep tests
+     * @return the graph
+     */
+    private static Graph sweepGraph(){
+        Graph g = new Graph();
+        for(int i = 0; i < 60; i++){
+            g.addEdge(new Node("N" + i), new Node("N" + ((i + 1) % 60)), "");
+        }
+        g.seed = 11;
+        return g;
+    }
+
+    public void testSweepGrid(){
+
+        try{
+            Sweep sweep = new Sweep(sweepGraph());
+            sweep.parse("lambda=1,2;t=1,2,3");
+            sweep.runs = 2;
+            String[][] rows = sweepRows(sweep);
+
+            // configurations in order with the last parameter changing fastest, and the runs of each together
+            boolean valid = rows.length == 12 && sweep.size() == 12;
+            double[] lambdas = {1, 2};
+            int[] periods = {1, 2, 3};
+            for(int r = 0; valid && r < rows.length; r++){
+                int config = r / 2;
+                valid = Integer.parseInt(rows[r][0]) == config && Integer.parseInt(rows[r][1]) == r % 2
+                    && Double.parseDouble(rows[r][2]) == lambdas[config / 3]
+                    && Integer.parseInt(rows[r][4]) == periods[config % 3]
+                    && rows[r].length == 12;
+            }
+
+            if(valid){
+                System.out.println("Sweep Grid Passed");
+            } else {
+                System.out.println("Sweep Grid Failed");
+            }
+        } catch (InterruptedException e){
+            System.out.println("Sweep Grid Failed");
+        }
+
+    }
+
+    public void testSweepLatinHypercube(){
+
+        try{
+            Sweep sweep = new Sweep(sweepGraph());
+            sweep.parse("lambda=0.5,2.5;t=1,9");
+            sweep.design = "lhs";
+            sweep.samples = 8;
+            String[][] rows = sweepRows(sweep);
+
+            // every value is in range, integer parameters are whole and each eighth of the lambda range has one sample
+            boolean valid = rows.length == 8;
+            boolean[] strata = new boolean[8];
+            for(int r = 0; valid && r < rows.length; r++){
+                double lambda = Double.parseDouble(rows[r][2]);
+                int t = Integer.parseInt(rows[r][4]);
+                int stratum = (int) ((lambda - 0.5) / 2.0 * 8);
+                valid = Integer.parseInt(rows[r][0]) == r && lambda >= 0.5 && lambda <= 2.5 && t >= 1 && t <= 9
+                    && stratum < 8 && !strata[stratum];
+                if(valid){
+                    strata[stratum] = true;
+                }
+            }
+
+            if(valid){
+                System.out.println("Sweep Latin Hypercube Passed");
+            } else {
+                System.out.println("Sweep Latin Hypercube Failed");
+            }
+        } catch (InterruptedException e){
+            System.out.println("Sweep Latin Hypercube Failed");
+        }
+
+    }
+
+    public void testEnsembleAggregation(){
+
+        Graph g = new Graph();
+        for(int i = 0; i < 40; i++){
+            g.addEdge(new Node("N" + i), new Node("N" + ((i + 1) % 40)), "");
+            g.addEdge(new Node("N" + i), new Node("N" + ((i + 5) % 40)), "");
+        }
+        g.seed = 5;
+        g.lambda = 1.2;
+        g.t = 2;
+        g.d = 0.5;
+        g.n_infected = 2;
+
+        Ensemble ensemble = new Ensemble(g);
+        ensemble.replicates = 8;
+        ensemble.num_threads = 3;
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        Locale locale = Locale.getDefault();
+        Locale.setDefault(Locale.GERMANY);
+        try{
+            ensemble.run();
+            ensemble.write(new PrintStream(bytes));
+        } catch (InterruptedException e){
+            Thread.currentThread().interrupt();
+        } finally{
+            Locale.setDefault(locale);
+        }
+
+        // run the same replicates one by one, keeping the counts of every tick
+        int[][][] runs = new int[ensemble.replicates][][];
+        int ticks = 0;
+        int shortest = Integer.MAX_VALUE;
+        for(int r = 0; r < runs.length; r++){
+            Graph replicate = g.replicate();
+            replicate.seed = RandomStream.stream(g.seed, RandomStream.REPLICATE, 0, r);
+            replicate.seedInfection("random");
+            IntList rows = new IntList();
+            while(true){
+                rows.add(replicate.susceptible);
+                rows.add(replicate.infected);
+                rows.add(replicate.recovered);
+                rows.add(replicate.dead);
+                if(replicate.infected == 0){
+                    break;
+                }
+                replicate.nextTick();
+            }
+            replicate.shutdown();
+            runs[r] = new int[rows.size() / 4][4];
+            for(int k = 0; k < rows.size(); k++){
+                runs[r][k / 4][k % 4] = rows.get(k);
+            }
+            ticks = Math.max(ticks, runs[r].length);
+            shortest = Math.min(shortest, runs[r].length);
+        }
+
+        // replicates which ended early keep their final counts in the later ticks
+        String[] lines = bytes.toString().trim().split("\\r?\\n");
+        boolean valid = shortest < ticks && ensemble.getTicks() == ticks && lines.length == 1 + ticks * 4
+            && lines[0].equals("tick,compartment,mean,min,q05,q25,q50,q75,q95,max");
+        for(int tick = 0; valid && tick < ticks; tick++){
+            for(int c = 0; valid && c < 4; c++){
+                int[] values = new int[runs.length];
+                double sum = 0;
+                for(int r = 0; r < runs.length; r++){
+                    values[r] = runs[r][Math.min(tick, runs[r].length - 1)][c];
+                    sum += values[r];
+                }
+                Arrays.sort(values);
+                String[] row = lines[1 + tick * 4 + c].split(",");
+                valid = row.length == 10 && Integer.parseInt(row[0]) == tick && row[1].equals(Ensemble.COMPARTMENTS[c])
+                    && Math.abs(Double.parseDouble(row[2]) - sum / runs.length) < 1e-3
+                    && Integer.parseInt(row[3]) == values[0] && Integer.parseInt(row[9]) == values[values.length - 1]
+                    && Math.abs(Double.parseDouble(row[6]) - (values[3] + values[4]) / 2.0) < 1e-3;
+            }
+        }
+
+        // quantiles interpolate between the closest two values
+        valid &= Ensemble.quantile(new int[]{1, 2, 3, 4, 5}, 0.25) == 2.0
+            && Math.abs(Ensemble.quantile(new int[]{0, 10}, 0.05) - 0.5) < 1e-9;
+
+        if(valid){
+            System.out.println("Ensemble Aggregation Passed");
+        } else {
+            System.out.println("Ensemble Aggregation Failed");
+        }
+
+    }
+
+    public void testSweepFailure(){
+
+        // every run fails to seed, and the first error ends the sweep
+        Sweep sweep = new Sweep(sweepGraph());
+        sweep.parse("lambda=1,2,3,4,5,6,7,8;t=1,2,3,4");
+        sweep.strategy = "nearest";
+        sweep.num_threads = 2;
+        boolean thrown = false;
+        try{
+            sweep.run();
+        } catch (IllegalArgumentException e){
+            thrown = e.getMessage().contains("nearest");
+        } catch (InterruptedException e){
+            Thread.currentThread().interrupt();
+        }
+
+        if(thrown){
+            System.out.println("Sweep Failure Passed");
+        } else {
+            System.out.println("Sweep Failure Failed");
+        }
+
+    }
 
     public static void main(String[] args){
 
@@ -142,6 +1048,32 @@ public class SimulationTest {
         tester.testEdgeHashCode();
         tester.testEdgeEquals();
         tester.testEdgeNotEquals();
+        tester.testNodeStateView();
+        tester.testReplicateState();
+        tester.testSeedThreadInvariance();
+        tester.testChartAddTick();
+        tester.testTimeSeriesCap();
+        tester.testRunnerToExtinction();
+        tester.testTickStats();
+        tester.testEventEngine();
+        tester.testEngineRecoveryTick();
+        tester.testTimingWheel();
+        tester.testSusceptibleNeighbors();
+        tester.testQuotaClosedForm();
+        tester.testBinomialLargeMean();
+        tester.testNeighborSampling();
+        tester.testPushPull();
+        tester.testLoaderSeparators();
+        tester.testLoaderChunks();
+        tester.testSnapshotRoundTrip();
+        tester.testSnapshotStale();
+        tester.testSnapshotDuplicateName();
+        tester.testBatchArguments();
+        tester.testBatchRun();
+        tester.testEnsembleAggregation();
+        tester.testSweepGrid();
+        tester.testSweepLatinHypercube();
+        tester.testSweepFailure();
 
         System.out.println("\n-------- FINISHED TESTS --------\n");
 